@@ -0,0 +1,164 @@
+package org.workswap.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+// Нагрузочный прогон чата против локально запущенного API.
+// Файл пар: строки "chatId,tokenA,tokenB" — два участника одного чата на строку.
+// Пример: java -jar WSApi-loadtest.jar --pairs=pairs.csv --send-rate=500 --duration-s=120
+public class ChatLoadTest {
+
+    public static class Stats {
+        final LatencyRecorder delivered = new LatencyRecorder("chat.send");
+        final LatencyRecorder chats = new LatencyRecorder("getChats");
+        final LatencyRecorder sent = new LatencyRecorder("sent");
+        final LatencyRecorder markAsRead = new LatencyRecorder("markAsRead");
+        final AtomicLong errors = new AtomicLong();
+
+        void reset() {
+            delivered.reset();
+            chats.reset();
+            sent.reset();
+            markAsRead.reset();
+            errors.set(0);
+        }
+
+        void print(double seconds) {
+            System.out.println(sent.report(seconds));
+            System.out.println(delivered.report(seconds));
+            System.out.println(markAsRead.report(seconds));
+            System.out.println(chats.report(seconds));
+            System.out.println("errors       " + errors.get());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+
+        String url = options.getOrDefault("url", "ws://localhost:8083/ws");
+        String locale = options.getOrDefault("locale", "ru");
+        Path pairsFile = Path.of(options.getOrDefault("pairs", "pairs.csv"));
+        double sendRate = Double.parseDouble(options.getOrDefault("send-rate", "100"));
+        double readRate = Double.parseDouble(options.getOrDefault("read-rate", "50"));
+        double chatsRate = Double.parseDouble(options.getOrDefault("chats-rate", "10"));
+        int connectRate = Integer.parseInt(options.getOrDefault("connect-rate", "200"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-s", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-s", "60"));
+
+        Stats stats = new Stats();
+        Map<Long, Long> sentAt = new ConcurrentHashMap<>();
+        AtomicLong sequence = new AtomicLong();
+
+        List<SimulatedClient> clients = new ArrayList<>();
+        for (String line : Files.readAllLines(pairsFile)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            long chatId = Long.parseLong(parts[0].strip());
+            clients.add(new SimulatedClient(clients.size(), chatId, parts[1].strip(), stats, sentAt, sequence));
+            clients.add(new SimulatedClient(clients.size(), chatId, parts[2].strip(), stats, sentAt, sequence));
+        }
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.setThreadNamePrefix("stomp-heartbeat-");
+        scheduler.initialize();
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setTaskScheduler(scheduler);
+        stompClient.setInboundMessageSizeLimit(4 * 1024 * 1024);
+
+        System.out.printf("Подключаем %d клиентов к %s%n", clients.size(), url);
+        for (int i = 0; i < clients.size(); i++) {
+            clients.get(i).connect(stompClient, url, locale);
+            if ((i + 1) % connectRate == 0) {
+                Thread.sleep(1000);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (clients.stream().filter(SimulatedClient::isConnected).count() < clients.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+        }
+        List<SimulatedClient> connected = clients.stream().filter(SimulatedClient::isConnected).toList();
+        System.out.printf("Подключено %d из %d%n", connected.size(), clients.size());
+        if (connected.isEmpty()) {
+            System.exit(1);
+        }
+
+        // Каждые 10 мс выдаём накопившуюся долю операций, дробные остатки переносим на следующий тик
+        ScheduledExecutorService driver = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        double[] carry = new double[3];
+        driver.scheduleAtFixedRate(() -> {
+            carry[0] += sendRate / 100;
+            carry[1] += readRate / 100;
+            carry[2] += chatsRate / 100;
+            for (; carry[0] >= 1; carry[0]--) {
+                pick(connected).sendMessage(locale);
+            }
+            for (; carry[1] >= 1; carry[1]--) {
+                pick(connected).markAsRead(locale);
+            }
+            for (; carry[2] >= 1; carry[2]--) {
+                pick(connected).getChats(locale);
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        System.out.printf("Прогрев %d с%n", warmupSeconds);
+        Thread.sleep(warmupSeconds * 1000L);
+        stats.reset();
+        sentAt.clear();
+
+        long start = System.nanoTime();
+        for (int elapsed = 0; elapsed < durationSeconds; ) {
+            int step = Math.min(10, durationSeconds - elapsed);
+            Thread.sleep(step * 1000L);
+            elapsed += step;
+            System.out.printf("--- %d с%n", elapsed);
+            stats.print((System.nanoTime() - start) / 1e9);
+        }
+        driver.shutdownNow();
+
+        // Даём дойти сообщениям, отправленным в последние секунды
+        Thread.sleep(2000);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("=== Итог за %.1f с, клиентов %d, не доставлено %d%n", seconds, connected.size(), sentAt.size());
+        stats.print(seconds);
+
+        clients.forEach(SimulatedClient::disconnect);
+        scheduler.shutdown();
+        System.exit(0);
+    }
+
+    private static SimulatedClient pick(List<SimulatedClient> clients) {
+        return clients.get(ThreadLocalRandom.current().nextInt(clients.size()));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,106 @@
+package org.workswap.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Пропускная способность канала входящих STOMP-кадров с пулом платформенных потоков и с виртуальными потоками.
+// Канал и пул собраны так же, как clientInboundChannel в Spring по умолчанию (ядро пула — 2 потока на процессор),
+// обработчик имитирует контроллер: немного работы процессора и блокирующий запрос в базу на io-ms.
+// Запуск: cd loadtest && mvn -q compile exec:java -Dexec.mainClass=org.workswap.loadtest.InboundExecutorBenchmark
+//         -Dexec.args="--messages=20000 --io-ms=2 --cpu-us=50"
+public class InboundExecutorBenchmark {
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int messages = Integer.parseInt(options.getOrDefault("messages", "20000"));
+        long ioMillis = Long.parseLong(options.getOrDefault("io-ms", "2"));
+        long cpuMicros = Long.parseLong(options.getOrDefault("cpu-us", "50"));
+
+        System.out.printf("processors=%d messages=%d io-ms=%d cpu-us=%d%n",
+            Runtime.getRuntime().availableProcessors(), messages, ioMillis, cpuMicros);
+
+        // Первый прогон каждого режима — прогрев JIT, в отчёт не идёт
+        for (boolean report : new boolean[] { false, true }) {
+            ThreadPoolTaskExecutor pool = platformPool();
+            run("platform pool", pool, messages, ioMillis, cpuMicros, report);
+            pool.shutdown();
+
+            run("virtual", new VirtualThreadTaskExecutor("stomp-inbound-"), messages, ioMillis, cpuMicros, report);
+        }
+    }
+
+    private static ThreadPoolTaskExecutor platformPool() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("clientInboundChannel-");
+        executor.initialize();
+        return executor;
+    }
+
+    private static void run(String name, TaskExecutor executor, int messages, long ioMillis, long cpuMicros,
+                            boolean report) throws InterruptedException {
+        LatencyRecorder latency = new LatencyRecorder(name);
+        CountDownLatch done = new CountDownLatch(messages);
+
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.subscribe(message -> {
+            busy(cpuMicros);
+            try {
+                Thread.sleep(ioMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latency.record(System.nanoTime() - (Long) message.getPayload());
+            done.countDown();
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            Message<Long> message = MessageBuilder.withPayload(System.nanoTime()).build();
+            channel.send(message);
+        }
+        if (!done.await(10, TimeUnit.MINUTES)) {
+            System.out.println(name + ": не дождались обработки");
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (report) {
+            System.out.println(latency.report(seconds));
+        }
+    }
+
+    private static void busy(long micros) {
+        long until = System.nanoTime() + micros * 1000;
+        long x = 0;
+        while (System.nanoTime() < until) {
+            x += x * 31 + 7;
+        }
+        sink += x;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
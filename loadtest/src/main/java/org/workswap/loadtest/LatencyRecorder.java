@@ -0,0 +1,51 @@
+package org.workswap.loadtest;
+
+import java.util.Arrays;
+
+// Накопитель задержек в наносекундах: все значения хранятся, перцентили считаются сортировкой в конце
+public class LatencyRecorder {
+
+    private final String name;
+
+    private long[] values = new long[1 << 16];
+    private int size = 0;
+    private long operations = 0;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+        operations++;
+    }
+
+    // Операция без ответа (например, markAsRead): учитывается только в пропускной способности
+    public synchronized void count() {
+        operations++;
+    }
+
+    public synchronized void reset() {
+        size = 0;
+        operations = 0;
+    }
+
+    public synchronized String report(double seconds) {
+        StringBuilder line = new StringBuilder(String.format("%-12s ops=%-9d %9.1f/s", name, operations, operations / seconds));
+        if (size > 0) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            line.append(String.format("  p50=%7.2fms p95=%7.2fms p99=%7.2fms max=%8.2fms",
+                millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99), sorted[size - 1] / 1_000_000.0));
+        }
+        return line.toString();
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,138 @@
+package org.workswap.loadtest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+// Размер и стоимость кадров JSON и CBOR на типичных телах сообщений и списка чатов.
+// Путь тот же, что у PayloadEncodingInterceptor: объект -> JSON (конвертер Spring), затем JSON -> дерево -> CBOR.
+// Данные генерируются с фиксированным зерном, поэтому размеры от запуска к запуску одинаковые.
+// Запуск: cd loadtest && mvn -q compile exec:java -Dexec.mainClass=org.workswap.loadtest.PayloadEncodingBenchmark
+public class PayloadEncodingBenchmark {
+
+    // Поля как у MessageDTO из common
+    record MessageFrame(Long id, String text, LocalDateTime sentAt, Long senderId, Long chatId, Long receiverId, boolean own) {}
+
+    // Поля как у ChatSummaryDTO и ChatListDTO: один чат и страница списка
+    record ChatFrame(Long id, Long interlocutorId, String interlocutorName, String interlocutorAvatarUrl,
+                     boolean temporary, MessageFrame lastMessage, LocalDateTime lastActivityAt, long unreadCount) {}
+
+    record ChatPageFrame(List<ChatFrame> chats, int page, boolean hasMore, Long version, Map<Long, Long> unreadCounts) {}
+
+    private static final String WORDS = "привет как дела завтра встреча объявление цена доставка можно посмотреть"
+        + " hello thanks tomorrow price available photo kiitos huomenna hinta";
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS_PER_ROUND = 20_000;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+                                                        .findAndAddModules()
+                                                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                                                        .build();
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final Random random = new Random(42);
+
+    private volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        new PayloadEncodingBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("%-18s %9s %9s %7s %14s %16s%n", "payload", "json B", "cbor B", "ratio", "json enc ns", "json->cbor ns");
+        measure("message short", message(20));
+        measure("message medium", message(120));
+        measure("message long", message(1000));
+        measure("chat", chat());
+        measure("chat page x30", page(30));
+    }
+
+    private void measure(String name, Object payload) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(payload);
+        byte[] cbor = transcode(json);
+
+        long jsonNanos = time(() -> {
+            try {
+                return objectMapper.writeValueAsBytes(payload).length;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long transcodeNanos = time(() -> transcode(json).length);
+
+        System.out.printf("%-18s %9d %9d %7.2f %14d %16d%n",
+            name, json.length, cbor.length, (double) cbor.length / json.length, jsonNanos, transcodeNanos);
+    }
+
+    // Медиана по раундам: отдельные раунды с паузой GC не искажают результат
+    private long time(Supplier<Integer> operation) {
+        long[] perOperation = new long[ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int total = 0;
+            for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+                total += operation.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            sink += total;
+            if (round >= 0) {
+                perOperation[round] = elapsed / OPERATIONS_PER_ROUND;
+            }
+        }
+        Arrays.sort(perOperation);
+        return perOperation[ROUNDS / 2];
+    }
+
+    private byte[] transcode(byte[] json) {
+        try {
+            JsonNode tree = objectMapper.readTree(json);
+            return cborMapper.writeValueAsBytes(tree);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MessageFrame message(int length) {
+        long id = 200_000_000_000_000L + random.nextInt(1_000_000);
+        return new MessageFrame(id, text(length), LocalDateTime.of(2026, 10, 18, 12, 30).plusSeconds(random.nextInt(86400)),
+            1000L + random.nextInt(50_000), 10_000L + random.nextInt(100_000), 1000L + random.nextInt(50_000), random.nextBoolean());
+    }
+
+    private ChatFrame chat() {
+        MessageFrame last = message(20 + random.nextInt(100));
+        return new ChatFrame(last.chatId(), last.receiverId(), "Пользователь " + random.nextInt(1000),
+            "https://example.org/avatars/" + random.nextInt(100_000) + ".webp",
+            false, last, last.sentAt(), random.nextInt(5));
+    }
+
+    private ChatPageFrame page(int size) {
+        List<ChatFrame> chats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chats.add(chat());
+        }
+        return new ChatPageFrame(chats, 0, true, chats.get(0).lastMessage().id(), null);
+    }
+
+    private String text(int length) {
+        String[] words = WORDS.split(" ");
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.substring(0, length);
+    }
+}
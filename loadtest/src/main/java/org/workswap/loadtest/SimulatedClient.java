@@ -0,0 +1,185 @@
+package org.workswap.loadtest;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Один пользователь чата: подписан на сообщения своего чата и на страницу списка чатов
+public class SimulatedClient {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String MARKER = "lt-";
+
+    // Ответ на getChats, не пришедший за это время, считается потерянным
+    private static final long CHATS_TIMEOUT_NANOS = 10_000_000_000L;
+
+    private final int index;
+    private final long chatId;
+    private final String token;
+    private final ChatLoadTest.Stats stats;
+    private final Map<Long, Long> sentAt;
+    private final AtomicLong sequence;
+
+    private volatile StompSession session;
+    private volatile long chatsRequestedAt = 0;
+
+    public SimulatedClient(int index, long chatId, String token, ChatLoadTest.Stats stats, Map<Long, Long> sentAt, AtomicLong sequence) {
+        this.index = index;
+        this.chatId = chatId;
+        this.token = token;
+        this.stats = stats;
+        this.sentAt = sentAt;
+        this.sequence = sequence;
+    }
+
+    public CompletableFuture<StompSession> connect(WebSocketStompClient client, String url, String locale) {
+        WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+        handshakeHeaders.add("Authorization", "Bearer " + token);
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        connectHeaders.add("locale", locale);
+
+        return client.connectAsync(url, handshakeHeaders, connectHeaders, new StompSessionHandlerAdapter() {
+            @Override
+            public void afterConnected(StompSession connected, StompHeaders headers) {
+                session = connected;
+                connected.subscribe("/topic/messages/" + chatId, frameHandler(SimulatedClient.this::onMessage));
+                connected.subscribe("/user/queue/chats.page", frameHandler(payload -> onChatsPage()));
+            }
+
+            @Override
+            public void handleException(StompSession s, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+                stats.errors.incrementAndGet();
+            }
+
+            @Override
+            public void handleTransportError(StompSession s, Throwable exception) {
+                stats.errors.incrementAndGet();
+            }
+        }).whenComplete((connected, error) -> {
+            if (error != null) {
+                stats.errors.incrementAndGet();
+            }
+        });
+    }
+
+    public boolean isConnected() {
+        StompSession current = session;
+        return current != null && current.isConnected();
+    }
+
+    public void sendMessage(String locale) {
+        long seq = sequence.incrementAndGet();
+        sentAt.put(seq, System.nanoTime());
+        send("/app/chat.send", locale, Map.of("chatId", chatId, "text", MARKER + seq + "-" + index));
+        stats.sent.count();
+    }
+
+    public void markAsRead(String locale) {
+        send("/app/chat.markAsRead", locale, Map.of("chatId", chatId));
+        stats.markAsRead.count();
+    }
+
+    public void getChats(String locale) {
+        // Одна незавершённая выборка на клиента, иначе задержки ответов перепутаются
+        long pending = chatsRequestedAt;
+        long now = System.nanoTime();
+        if (pending != 0) {
+            if (now - pending < CHATS_TIMEOUT_NANOS) {
+                return;
+            }
+            stats.errors.incrementAndGet();
+        }
+        chatsRequestedAt = now;
+        if (!send("/app/getChats", locale, Map.of("size", 30))) {
+            chatsRequestedAt = 0;
+        }
+    }
+
+    public void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    // Сессия Tomcat не допускает одновременной отправки из нескольких потоков
+    private synchronized boolean send(String destination, String locale, Object body) {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            stats.errors.incrementAndGet();
+            return false;
+        }
+        try {
+            StompHeaders headers = new StompHeaders();
+            headers.setDestination(destination);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            headers.add("locale", locale);
+            current.send(headers, objectMapper.writeValueAsBytes(body));
+            return true;
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+            return false;
+        }
+    }
+
+    // Задержку доставки считает собеседник; своё эхо отправитель пропускает
+    private void onMessage(byte[] payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            String text = node.path("text").asText("");
+            if (!text.startsWith(MARKER)) {
+                return;
+            }
+            String[] parts = text.substring(MARKER.length()).split("-");
+            if (Integer.parseInt(parts[1]) == index) {
+                return;
+            }
+            Long started = sentAt.remove(Long.parseLong(parts[0]));
+            if (started != null) {
+                stats.delivered.record(System.nanoTime() - started);
+            }
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    private void onChatsPage() {
+        long started = chatsRequestedAt;
+        chatsRequestedAt = 0;
+        if (started != 0) {
+            stats.chats.record(System.nanoTime() - started);
+        }
+    }
+
+    private static StompFrameHandler frameHandler(Consumer<byte[]> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                consumer.accept(payload instanceof byte[] bytes ? bytes : String.valueOf(payload).getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package org.workswap.api.aspects;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.workswap.api.events.ListingChangedEvent;
+import org.workswap.core.services.query.ListingQueryService;
+import org.workswap.datasource.central.model.Listing;
+import org.workswap.datasource.central.model.User;
+
+import lombok.RequiredArgsConstructor;
+
+// Внешний по отношению к транзакции сервиса, чтобы слушатели видели уже закоммиченные данные
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ListingChangeAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingChangeAspect.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ListingQueryService listingQueryService;
+
+    @AfterReturning(
+        pointcut = "execution(* org.workswap.core.services.command.ListingCommandService.save(..)) && args(listing)",
+        argNames = "listing"
+    )
+    public void afterSave(Listing listing) {
+        publish(listing, categoriesOf(listing), ListingChangedEvent.Type.SAVED);
+    }
+
+    @AfterReturning(
+        pointcut = "execution(* org.workswap.core.services.command.ListingCommandService.saveAndReturn(..))",
+        returning = "saved"
+    )
+    public void afterSaveAndReturn(Listing saved) {
+        publish(saved, categoriesOf(saved), ListingChangedEvent.Type.SAVED);
+    }
+
+    @Around(
+        value = "execution(* org.workswap.core.services.command.ListingCommandService.delete(..)) && args(listing)",
+        argNames = "joinPoint,listing"
+    )
+    public Object aroundDelete(ProceedingJoinPoint joinPoint, Listing listing) throws Throwable {
+        // После удаления категорию уже не получить, поэтому запоминаем заранее
+        Long listingId = listing.getId();
+        Set<Long> categories = categoriesOf(listing);
+
+        Object result = joinPoint.proceed();
+
+        publish(listingId, categories, ListingChangedEvent.Type.DELETED);
+        return result;
+    }
+
+    @Around(
+        value = "execution(* org.workswap.core.services.command.ListingCommandService.modifyListingParam(..)) && args(user, id, updates)",
+        argNames = "joinPoint,user,id,updates"
+    )
+    public Object aroundModify(ProceedingJoinPoint joinPoint, User user, Long id, Map<String, Object> updates) throws Throwable {
+        // Категория могла поменяться, инвалидируем и старую, и новую
+        Set<Long> categories = categoriesOf(listingQueryService.findListing(id.toString()));
+
+        Object result = joinPoint.proceed();
+
+        Listing modified = listingQueryService.findListing(id.toString());
+        categories.addAll(categoriesOf(modified));
+
+        publish(id, categories, ListingChangedEvent.Type.SAVED);
+        return result;
+    }
+
+    private void publish(Listing listing, Set<Long> categories, ListingChangedEvent.Type type) {
+        if (listing == null) {
+            return;
+        }
+        publish(listing.getId(), categories, type);
+    }
+
+    private void publish(Long listingId, Set<Long> categories, ListingChangedEvent.Type type) {
+        logger.debug("Объявление {} изменено ({}), категории: {}", listingId, type, categories);
+        eventPublisher.publishEvent(new ListingChangedEvent(listingId, categories, type));
+    }
+
+    private Set<Long> categoriesOf(Listing listing) {
+        Set<Long> categories = new HashSet<>();
+        if (listing != null && listing.getCategory() != null) {
+            categories.add(listing.getCategory().getId());
+        }
+        return categories;
+    }
+}
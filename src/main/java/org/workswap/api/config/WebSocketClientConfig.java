@@ -0,0 +1,91 @@
+package org.workswap.api.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.workswap.api.services.components.InboundTimings;
+import org.workswap.api.services.components.OutboundBackpressure;
+import org.workswap.api.services.components.PayloadEncodingInterceptor;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import lombok.RequiredArgsConstructor;
+
+// Дополняет основную настройку STOMP из core: выбор кодировки по сессии, приём CBOR-тел от клиентов
+// и ограничение исходящей очереди каждой сессии.
+// permessage-deflate отдельно включать не нужно: Tomcat согласует его сам, если клиент предлагает расширение.
+@Configuration
+@RequiredArgsConstructor
+public class WebSocketClientConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final PayloadEncodingInterceptor payloadEncodingInterceptor;
+    private final OutboundBackpressure outboundBackpressure;
+    private final InboundTimings inboundTimings;
+
+    // Тот же переключатель, что переводит Tomcat на виртуальные потоки
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.outbound.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.interceptors(payloadEncodingInterceptor.inbound(), inboundTimings);
+        if (virtualThreads) {
+            // Обработчики ходят в базу и внешние сервисы; виртуальный поток на кадр вместо ограниченного пула
+            registration.executor(new VirtualThreadTaskExecutor("stomp-inbound-"));
+        }
+    }
+
+    // Порядок важен: сначала ограничение очереди (ему нужен исходный JSON для ключа слияния), потом перекодирование
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.interceptors(outboundBackpressure, payloadEncodingInterceptor);
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("stomp-outbound-"));
+        }
+    }
+
+    // Без пула с ограниченным числом потоков кадры одной сессии могут обгонять друг друга,
+    // поэтому в режиме виртуальных потоков порядок внутри сессии сохраняется явно
+    @Override
+    public void configureMessageBroker(@NonNull MessageBrokerRegistry registry) {
+        if (virtualThreads) {
+            registry.setPreservePublishOrder(true);
+            registry.setPreserveReceiveOrder(true);
+        }
+    }
+
+    // Ограничения на уровне сокета: если буфер отправки переполнен или отправка зависла, сессия закрывается
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                    .setSendTimeLimit(sendTimeLimit)
+                    .addDecoratorFactory(outboundBackpressure.sessionTracker());
+    }
+
+    @Override
+    public boolean configureMessageConverters(@NonNull List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cbor = new MappingJackson2MessageConverter(PayloadEncodingInterceptor.APPLICATION_CBOR);
+        cbor.setObjectMapper(CBORMapper.builder().findAndAddModules().build());
+        cbor.setSerializedPayloadClass(byte[].class);
+        // Только для кадров с content-type application/cbor, иначе он перехватит исходящие сообщения без типа
+        cbor.setStrictContentTypeMatch(true);
+        messageConverters.add(cbor);
+        // true — оставить стандартные конвертеры, в том числе JSON
+        return true;
+    }
+}
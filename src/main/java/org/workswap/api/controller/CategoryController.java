@@ -16,6 +16,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.workswap.api.services.ResourceVersionService;
 import org.workswap.common.dto.CategoryDTO;
 import org.workswap.core.services.CategoryService;
 import org.workswap.datasource.central.model.listingModels.Category;
@@ -30,6 +32,7 @@ import lombok.RequiredArgsConstructor;
 public class CategoryController {
     
     private final CategoryService categoryService;
+    private final ResourceVersionService resourceVersionService;
 
     //перенести сервис в сервис
     private final CategoryRepository categoryRepository;
@@ -50,14 +53,19 @@ public class CategoryController {
 
     @GetMapping("/root")
     @PermitAll
-    public ResponseEntity<?> rootCategoryList(@RequestParam String locale) {
+    public ResponseEntity<?> rootCategoryList(@RequestParam String locale, WebRequest request) {
+
+        String etag = resourceVersionService.rootCategoriesEtag(locale);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
 
         List<CategoryDTO> rootCategories = categoryService.getRootCategories()
                                                           .stream()
                                                           .map(category -> categoryService.toDTO(category, Locale.of("locale")))
                                                           .collect(Collectors.toList());
 
-        return ResponseEntity.ok().body(Map.of("rootCategories", rootCategories));
+        return ResponseEntity.ok().eTag(etag).body(Map.of("rootCategories", rootCategories));
     }
 
     @GetMapping("/children/{parentId}")
@@ -91,7 +99,9 @@ public class CategoryController {
         
         Category category = new Category(dto.getName(), parent);
         category.setLeaf(dto.isLeaf());
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        resourceVersionService.categoriesChanged();
+        return saved;
     }
 
     @PreAuthorize("hasAuthority('CREATE_CATEGORY')")
@@ -108,6 +118,7 @@ public class CategoryController {
             categoryDto.setParentId(parentCategoryId);
             System.out.println("Начинаем создавать категорию");
             categoryService.createCategory(categoryDto, translations);
+            resourceVersionService.categoriesChanged();
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("errorMessage", "Ошибка при добавлении локации"));
@@ -119,6 +130,7 @@ public class CategoryController {
     public ResponseEntity<?> deleteCategory(@RequestParam Long category) {
         try {
             categoryService.deleteCategory(category);
+            resourceVersionService.categoriesChanged();
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("errorMessage", "Ошибка при удалении локации"));
@@ -14,6 +14,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.workswap.api.dto.ChatSearchResultDTO;
+import org.workswap.api.services.components.ChatHistoryQuery;
+import org.workswap.api.services.components.ChatMembershipCache;
+import org.workswap.api.services.components.ChatMessageSearchIndex;
+import org.workswap.api.services.components.TemporaryChatCleaner;
+import org.workswap.api.services.components.UnreadCounters;
 import org.workswap.datasource.central.model.Listing;
 import org.workswap.datasource.central.model.User;
 import org.workswap.common.dto.user.UserDTO;
@@ -33,7 +39,9 @@ import lombok.RequiredArgsConstructor;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -49,6 +57,11 @@ public class ChatController {
     private final UserQueryService userQueryService;
     private final ListingQueryService listingQueryService;
     private final UserMappingService userMappingService;
+    private final UnreadCounters unreadCounters;
+    private final ChatMembershipCache chatMembershipCache;
+    private final TemporaryChatCleaner temporaryChatCleaner;
+    private final ChatMessageSearchIndex chatMessageSearchIndex;
+    private final ChatHistoryQuery chatHistoryQuery;
 
     @GetMapping("/get")
     @PermitAll
@@ -77,6 +90,39 @@ public class ChatController {
         return ResponseEntity.ok(Map.of("chatId", chat.getId()));
     }
 
+    @GetMapping("/unread")
+    @PreAuthorize("hasAuthority('CHAT_GET_CHATS')")
+    public ResponseEntity<?> getUnreadTotal(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(Map.of("unread", unreadCounters.getTotal(user.getId())));
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('CHAT_LOAD_HISTORY')")
+    public ResponseEntity<?> searchMessages(
+        @RequestParam("q") String query,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @AuthenticationPrincipal User user
+    ) {
+        List<Long> messageIds = chatMessageSearchIndex.search(user.getId(), query, ChatHistoryQuery.normalizeLimit(limit));
+
+        // База отдаёт сообщения без порядка, восстанавливаем порядок индекса: сначала новые
+        Map<Long, Message> byId = chatHistoryQuery.byIds(messageIds)
+                                                  .stream()
+                                                  .collect(Collectors.toMap(Message::getId, message -> message));
+
+        List<ChatSearchResultDTO> results = messageIds.stream()
+                                                      .map(byId::get)
+                                                      .filter(Objects::nonNull)
+                                                      .map(message -> new ChatSearchResultDTO(
+                                                          message.getChat().getId(),
+                                                          message.getId(),
+                                                          ChatMessageSearchIndex.snippet(message.getText(), query),
+                                                          message.getSentAt()))
+                                                      .toList();
+
+        return ResponseEntity.ok(Map.of("results", results));
+    }
+
     @GetMapping("/{id}/chat-terms")
     @PreAuthorize("hasAuthority('CHAT_ACCEPT_TERMS')")
     public ResponseEntity<?> getTermsState(
@@ -85,13 +131,11 @@ public class ChatController {
         Locale locale
     ) {
 
-        Chat chat = chatRepository.findById(id).orElse(null);
-
-        ChatParticipant participant = chatParticipantRepository.findByUserAndChat(user, chat);
-        if (!chat.getParticipants().contains(participant)) {
+        if (!chatMembershipCache.isParticipant(id, user.getId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
+        ChatParticipant participant = chatParticipantRepository.findByUserAndChat(user, chatRepository.getReferenceById(id));
 
         return ResponseEntity.ok(Map.of("chatTermsAccepted", participant.isChatTermsAccepted(), 
                                         "message", messageSource.getMessage("chat.terms.message", null, locale), 
@@ -102,14 +146,12 @@ public class ChatController {
     @GetMapping("/{id}/getInterlocutorInfo")
     public ResponseEntity<?> getInterlocutorInfo(@PathVariable Long id, @AuthenticationPrincipal User user) {
 
-        Chat chat = chatRepository.findById(id).orElse(null);
-        ChatParticipant participant = chatParticipantRepository.findByUserAndChat(user, chat);
-        
-        if (!chat.getParticipants().contains(participant)) {
+        Long interlocutorId = chatMembershipCache.getInterlocutorId(id, user.getId());
+        if (interlocutorId == null) {
             throw new AccessDeniedException("No access to this chat");
         }
 
-        UserDTO interlocutor = userMappingService.toDto(chat.getInterlocutor(user));
+        UserDTO interlocutor = userMappingService.toDto(userQueryService.findUser(interlocutorId.toString()));
 
         return ResponseEntity.ok(Map.of("interlocutor", interlocutor));
     }
@@ -117,12 +159,11 @@ public class ChatController {
     @PostMapping("/{id}/accept-terms")
     @PreAuthorize("hasAuthority('CHAT_ACCEPT_TERMS')")
     public ResponseEntity<?> acceptTerms(@PathVariable Long id, @AuthenticationPrincipal User user) {
-        Chat chat = chatRepository.findById(id).orElse(null);
-        ChatParticipant participant = chatParticipantRepository.findByUserAndChat(user, chat);
-        
-        if (!chat.getParticipants().contains(participant)) {
+        if (!chatMembershipCache.isParticipant(id, user.getId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+
+        ChatParticipant participant = chatParticipantRepository.findByUserAndChat(user, chatRepository.getReferenceById(id));
         participant.setChatTermsAccepted(true);
         chatParticipantRepository.save(participant);
         return ResponseEntity.ok().build();
@@ -134,21 +175,7 @@ public class ChatController {
 
         logger.debug("Запрос на удаление временных диалогов от пользователя: {}", user.getName());
 
-        List<Chat> chats = chatRepository.findAllByParticipant(user);
-
-        logger.debug("Найдено диалогов у пользователя: {}", chats.size());
-
-        int removedCount = 0;
-        for (Chat chat : chats) {
-            if (chat.getMessages().isEmpty()) {
-                logger.debug("Найден пустой диалог с ID: {}", chat.getId());
-                if (chat.isTemporary()) {
-                    logger.debug("Удаляется временный диалог с ID: {}", chat.getId());
-                    chatRepository.delete(chat);
-                    removedCount++;
-                }
-            }
-        }
+        int removedCount = temporaryChatCleaner.deleteEmptyForUser(user.getId());
 
         logger.debug("Удалено {} временных диалогов для пользователя {}", removedCount, user.getName());
         return ResponseEntity.ok().build();
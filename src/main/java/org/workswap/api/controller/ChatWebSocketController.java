@@ -8,13 +8,27 @@ import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
-import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
+import org.workswap.api.dto.ChatHistoryDTO;
+import org.workswap.api.dto.ChatHistoryRequest;
+import org.workswap.api.dto.ChatListDTO;
+import org.workswap.api.dto.ChatListRequest;
+import org.workswap.api.services.components.ChatHistoryQuery;
+import org.workswap.api.services.components.ChatListQuery;
+import org.workswap.api.services.components.ChatMembershipCache;
+import org.workswap.api.services.components.ChatMessageSearchIndex;
+import org.workswap.api.services.components.ChatMessageWriteBehind;
+import org.workswap.api.services.components.ChatUpdateCoalescer;
+import org.workswap.api.services.components.OfflineNotificationDigest;
+import org.workswap.api.services.components.ReadWatermarks;
+import org.workswap.api.services.components.UnreadCounters;
+import org.workswap.api.services.presence.PresenceService;
 import org.workswap.datasource.central.model.User;
 import org.workswap.common.dto.chat.ChatDTO;
 import org.workswap.common.dto.chat.ChatRequest;
@@ -23,7 +37,6 @@ import org.workswap.common.dto.chat.MessageDTO;
 import org.workswap.common.dto.notification.NotificationDTO;
 import org.workswap.common.dto.user.InterlocutorInfoDTO;
 import org.workswap.datasource.central.model.chat.*;
-import org.workswap.core.services.NotificationService;
 import org.workswap.core.services.query.UserQueryService;
 import org.workswap.core.services.ChatService;
 
@@ -39,10 +52,18 @@ public class ChatWebSocketController {
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketController.class);
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final SimpUserRegistry simpUserRegistry;
     private final ChatService chatService;
     private final UserQueryService userQueryService;
-    private final NotificationService notificationService;
+    private final OfflineNotificationDigest offlineNotificationDigest;
+    private final ChatHistoryQuery chatHistoryQuery;
+    private final ChatListQuery chatListQuery;
+    private final ChatMessageWriteBehind chatMessageWriteBehind;
+    private final ChatUpdateCoalescer chatUpdateCoalescer;
+    private final UnreadCounters unreadCounters;
+    private final ChatMembershipCache chatMembershipCache;
+    private final PresenceService presenceService;
+    private final ReadWatermarks readWatermarks;
+    private final ChatMessageSearchIndex chatMessageSearchIndex;
 
     @MessageMapping("/chat.send")
     @PreAuthorize("hasAuthority('CHAT_SEND_MESSAGE')")
@@ -51,6 +72,19 @@ public class ChatWebSocketController {
 
         User sender = userQueryService.findUser(principal.getName());
         Chat chat = chatService.getChatById(messageDTO.getChatId());
+
+        if (chatMessageWriteBehind.isEnabled()) {
+            // Первое сообщение временного чата пишется сразу: иначе очистка временных чатов могла бы
+            // удалить чат, пока его сообщение ждёт в очереди, и запись упала бы на внешнем ключе.
+            // id и в этом случае из генератора отложенной записи, а не из AUTO_INCREMENT
+            if (chat.isTemporary()) {
+                sendMessageNow(messageDTO, chat, sender, locale);
+            } else {
+                sendMessageWriteBehind(messageDTO, chat, sender, locale);
+            }
+            return;
+        }
+
         Message message = chatService.sendMessage(chat, sender, messageDTO.getText());
 
         messagingTemplate.convertAndSend(
@@ -66,39 +100,109 @@ public class ChatWebSocketController {
                 )
         );
 
-        // Установка диалога постоянным
-        if (chat.isTemporary()) {
-            chatService.setPermanentChat(chat);
+        afterMessageSaved(chat, message.getId(), sender, message.getReceiver(), message.getText(), locale);
+    }
+
+    // Сообщение рассылается сразу с выданным в памяти id, а запись в базу и всё,
+    // что читает сообщение из базы (обновление чатов, уведомления), выполняется после записи пачки
+    private void sendMessageWriteBehind(MessageDTO messageDTO, Chat chat, User sender, Locale locale) {
+        User receiver = chat.getInterlocutor(sender);
+        if (receiver == null) {
+            throw new AccessDeniedException("No access to this chat");
         }
 
-        // Отправка уведомления получателю
-        User receiver = message.getReceiver();
+        String text = messageDTO.getText();
 
-        NotificationDTO notification = new NotificationDTO(
-                "Новое сообщение",
-                sender.getName() + ": " + message.getText(),
-                "/secure/messenger?chatId=" + chat.getId()
+        ChatMessageWriteBehind.PendingMessage pending = chatMessageWriteBehind.submit(
+            chat.getId(),
+            sender.getId(),
+            receiver.getId(),
+            text,
+            id -> afterMessageSaved(chat, id, sender, receiver, text, locale)
         );
 
-        chatService.notifyChatUpdate(message.getChat().getId(), sender, locale);
-        chatService.notifyChatUpdate(message.getChat().getId(), receiver, locale);
+        messagingTemplate.convertAndSend(
+            "/topic/messages/" + chat.getId(),
+                new MessageDTO(
+                        pending.id(),
+                        text,
+                        pending.sentAt(),
+                        sender.getId(),
+                        chat.getId(),
+                        receiver.getId(),
+                        true
+                )
+        );
+    }
+
+    private void sendMessageNow(MessageDTO messageDTO, Chat chat, User sender, Locale locale) {
+        User receiver = chat.getInterlocutor(sender);
+        if (receiver == null) {
+            throw new AccessDeniedException("No access to this chat");
+        }
+
+        String text = messageDTO.getText();
+        ChatMessageWriteBehind.PendingMessage saved = chatMessageWriteBehind.insertNow(
+            chat.getId(), sender.getId(), receiver.getId(), text);
+
+        messagingTemplate.convertAndSend(
+            "/topic/messages/" + chat.getId(),
+                new MessageDTO(
+                        saved.id(),
+                        text,
+                        saved.sentAt(),
+                        sender.getId(),
+                        chat.getId(),
+                        receiver.getId(),
+                        true
+                )
+        );
+
+        afterMessageSaved(chat, saved.id(), sender, receiver, text, locale);
+    }
+
+    private void afterMessageSaved(Chat chat, long messageId, User sender, User receiver, String text, Locale locale) {
+        // Установка диалога постоянным
+        boolean becamePermanent = chat.isTemporary();
+        if (becamePermanent) {
+            chatService.setPermanentChat(chat);
+        }
 
+        unreadCounters.increment(receiver.getId(), chat.getId(), messageId);
+        readWatermarks.messageSent(chat.getId(), messageId);
+        chatMessageSearchIndex.messageAdded(messageId, text, sender.getId(), receiver.getId());
+
+        // Новый чат клиенту ещё неизвестен, поэтому отправляем его целиком, остальное — через окно объединения
+        if (becamePermanent) {
+            chatUpdateCoalescer.chatCreated(chat.getId(), sender, locale);
+            chatUpdateCoalescer.chatCreated(chat.getId(), receiver, locale);
+        } else {
+            chatUpdateCoalescer.messageAdded(chat.getId(), sender, locale);
+            chatUpdateCoalescer.messageAdded(chat.getId(), receiver, locale);
+        }
+
+        // Отправка уведомления получателю
         if (isUserOnline(receiver)) {
             logger.debug("Пользователь {} онлайн, отправляем уведомление", receiver.getEmail());
+            NotificationDTO notification = new NotificationDTO(
+                    "Новое сообщение",
+                    sender.getName() + ": " + text,
+                    "/secure/messenger?chatId=" + chat.getId()
+            );
             messagingTemplate.convertAndSendToUser(
                     receiver.getEmail(),
                     "/queue/notifications",
                     notification
             );
         } else {
-            logger.debug("Пользователь {} офлайн, сохраняем уведомление", receiver.getEmail());
-            notificationService.saveOfflineChatNotification(receiver.getEmail(), notification);
+            logger.debug("Пользователь {} офлайн, добавляем сообщение в сводку", receiver.getEmail());
+            offlineNotificationDigest.add(receiver.getEmail(), chat.getId(), sender.getName(), text);
         }
     }
 
-    // Проверка активности пользователя
+    // Проверка активности пользователя на любом узле
     private boolean isUserOnline(User user) {
-        return simpUserRegistry.getUser(user.getEmail()) != null;
+        return presenceService.isOnline(user.getId());
     }
 
     @MessageMapping("/chat.loadMessages/{chatId}")
@@ -108,59 +212,99 @@ public class ChatWebSocketController {
         logger.debug("Получение сообщений для разговора с ID: {}", chatId);
 
         User currentUser = userQueryService.findUser(principal.getName());
+        chatMembershipCache.checkParticipant(chatId, currentUser.getId());
 
         // Получаем разговор по ID
         Chat chat = chatService.getChatById(chatId);
-        if (chat == null) {
-            throw new AccessDeniedException("Chat not found");
-        }
 
         // Получаем все сообщения для этого разговора
         List<Message> messages = chatService.getMessages(chat);
 
         // Преобразуем сообщения в DTO и отправляем клиенту
         return messages.stream()
-                        .map(msg -> new MessageDTO(
-                                msg.getId(),
-                                msg.getText(),
-                                msg.getSentAt(),
-                                msg.getSender().getId(),
-                                chat.getId(),
-                                msg.getReceiver().getId(),
-                                msg.getSender().equals(currentUser) // Проверка на владельца сообщения
-                        ))
+                        .map(msg -> toMessageDTO(msg, chat.getId(), currentUser))
                         .collect(Collectors.toList());
     }
 
+    // Постраничная история: окно до beforeMessageId или досинхронизация после sinceMessageId
+    @MessageMapping("/chat.history/{chatId}")
+    @SendToUser("/queue/history.messages")
+    @PreAuthorize("hasAuthority('CHAT_LOAD_HISTORY')")
+    public ChatHistoryDTO loadHistoryWindow(@DestinationVariable Long chatId, ChatHistoryRequest request, Principal principal) {
+        User currentUser = userQueryService.findUser(principal.getName());
+        chatMembershipCache.checkParticipant(chatId, currentUser.getId());
+
+        int limit = ChatHistoryQuery.normalizeLimit(request.getLimit());
+
+        ChatHistoryQuery.Window window = request.getSinceMessageId() != null
+            ? chatHistoryQuery.since(chatId, request.getSinceMessageId(), limit)
+            : chatHistoryQuery.before(chatId, request.getBeforeMessageId(), limit);
+
+        List<MessageDTO> messages = window.messages()
+                                          .stream()
+                                          .map(msg -> toMessageDTO(msg, chatId, currentUser))
+                                          .toList();
+
+        return new ChatHistoryDTO(chatId, messages, window.hasMore());
+    }
+
+    private MessageDTO toMessageDTO(Message message, Long chatId, User currentUser) {
+        return new MessageDTO(
+                message.getId(),
+                message.getText(),
+                message.getSentAt(),
+                message.getSender().getId(),
+                chatId,
+                message.getReceiver().getId(),
+                message.getSender().equals(currentUser) // Проверка на владельца сообщения
+        );
+    }
+
     @MessageMapping("/chat.markAsRead")
     @PreAuthorize("hasAuthority('CHAT_MARK_AS_READ')")
     public void markAsRead(MarkAsReadDTO markAsReadDTO, Principal principal, @Header("locale") String lang) {
         Locale locale = Locale.of(lang);
         User user = userQueryService.findUser(principal.getName());
         Long chatId = markAsReadDTO.getChatId();
+        chatMembershipCache.checkParticipant(chatId, user.getId());
 
-        chatService.markMessagesAsRead(chatId, user);
+        // Повторные прочтения без новых сообщений ничего не меняют и никого не уведомляют.
+        // Счётчик проверяется отдельно от отметки: если они расходятся, клиент всё равно должен увидеть ноль
+        boolean advanced = readWatermarks.markRead(chatId, user.getId());
+        if (!advanced && unreadCounters.get(user.getId(), chatId) == 0) {
+            return;
+        }
+        unreadCounters.reset(user.getId(), chatId);
         // Уведомляем об обновлении
-        chatService.notifyChatUpdate(chatId, user, locale);
+        chatUpdateCoalescer.readStateChanged(chatId, user, locale);
     }
 
+    // С телом запроса — одна страница списка одним кадром (и только изменившиеся чаты при sinceVersion),
+    // без тела — прежний режим по кадру на чат для старых клиентов
     @MessageMapping("/getChats")
     @PreAuthorize("hasAuthority('CHAT_GET_CHATS')")
-    public void getChats(Principal principal, @Header("locale") String lang) {
+    public void getChats(@Payload(required = false) ChatListRequest request, Principal principal, @Header("locale") String lang) {
         logger.debug("Начата функция получения диалогов для {}", principal.getName());
-        Locale locale = Locale.of(lang);
         User user = userQueryService.findUser(principal.getName());
+
+        if (request != null) {
+            int page = request.getPage() != null ? Math.max(request.getPage(), 0) : 0;
+            int size = ChatListQuery.normalizeSize(request.getSize());
+
+            ChatListDTO chats = chatListQuery.page(user, page, size, request.getSinceVersion());
+            messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/chats.page", chats);
+            logger.debug("Отправили страницу {} из {} диалогов", page, chats.getChats().size());
+            return;
+        }
+
+        Locale locale = Locale.of(lang);
         List<ChatDTO> chats = chatService.getChatsDTOForUser(user, locale);
-        logger.debug("Получили разговоры в виде DTO");
-        chats.stream()
-            .forEach(dto -> {
-                messagingTemplate.convertAndSendToUser(
-                    principal.getName(),
-                    "/queue/chats",
-                    dto
-                );
-                logger.debug("Отправили диалог: " + dto.getId());
-            });
+        chats.forEach(dto -> messagingTemplate.convertAndSendToUser(
+            principal.getName(),
+            "/queue/chats",
+            dto
+        ));
+        logger.debug("Отправили {} диалогов", chats.size());
     }
 
     @Transactional
@@ -171,15 +315,12 @@ public class ChatWebSocketController {
         User currentUser = userQueryService.findUser(principal.getName());
         Long chatId = request.getChatId();
 
-        Chat chat = chatService.getChatById(chatId);
-        if (chat == null) {
+        Long interlocutorId = chatMembershipCache.getInterlocutorId(chatId, currentUser.getId());
+        if (interlocutorId == null) {
             throw new AccessDeniedException("No access to this chat");
         }
 
-        User interlocutor = chat.getInterlocutor(currentUser);
-        if (interlocutor == null) {
-            throw new AccessDeniedException("No access to this chat");
-        }
+        User interlocutor = userQueryService.findUser(interlocutorId.toString());
 
         return new InterlocutorInfoDTO(interlocutor.getName(), interlocutor.getAvatarUrl());
     }
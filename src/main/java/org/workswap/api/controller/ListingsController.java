@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,14 +19,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.workswap.api.services.CatalogService;
+import org.workswap.api.services.ListingBatchService;
+import org.workswap.api.services.ListingPageService;
+import org.workswap.api.services.ResourceVersionService;
+import org.workswap.api.services.components.FavoriteListingsCache;
+import org.workswap.api.services.components.ListingSuggestIndex;
+import org.workswap.api.services.components.ListingViewAggregator;
+import org.workswap.api.services.components.ListingViewDeduplicator;
 import org.workswap.common.dto.listing.CatalogListingDTO;
 import org.workswap.common.dto.listing.ImageDTO;
 import org.workswap.common.dto.listing.ListingDTO;
 import org.workswap.common.dto.listing.ListingTranslationDTO;
-import org.workswap.common.dto.stat.ListingViewDTO;
 import org.workswap.core.services.command.ListingCommandService;
 import org.workswap.core.services.mapping.ListingMappingService;
-import org.workswap.core.services.producers.ListingViewProducer;
 import org.workswap.core.services.query.ListingQueryService;
 import org.workswap.core.services.query.UserQueryService;
 import org.workswap.datasource.central.model.Listing;
@@ -42,15 +51,29 @@ public class ListingsController {
     private final ChatRepository chatRepository;
     private final UserQueryService userQueryService;
 
-    private final ListingViewProducer listingViewProducer;
+    private final ListingViewAggregator listingViewAggregator;
+    private final ListingViewDeduplicator listingViewDeduplicator;
 
     private final ListingQueryService listingQueryService;
     private final ListingCommandService listingCommandService;
     private final ListingMappingService listingMappingService;
 
+    private final CatalogService catalogService;
+    private final ListingSuggestIndex listingSuggestIndex;
+    private final ListingBatchService listingBatchService;
+    private final FavoriteListingsCache favoriteListingsCache;
+    private final ResourceVersionService resourceVersionService;
+    private final ListingPageService listingPageService;
+
     @GetMapping("/get/{id}")
     @PermitAll
-    public ResponseEntity<?> getListing(@PathVariable Long id, @RequestParam String locale) {
+    public ResponseEntity<?> getListing(@PathVariable Long id, @RequestParam String locale, WebRequest request) {
+
+        // Клиент уже имеет актуальную версию — отвечаем 304 без маппинга
+        String etag = resourceVersionService.listingEtag(id, locale);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
 
         ListingDTO listing = listingQueryService.getListingDTO(id, locale);
 
@@ -58,7 +81,48 @@ public class ListingsController {
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok().body(Map.of("listing", listing));
+        return ResponseEntity.ok().eTag(etag).body(Map.of("listing", listing));
+    }
+
+    @GetMapping("/{id}/page")
+    @PermitAll
+    public ResponseEntity<?> getListingPage(
+        @PathVariable Long id,
+        @RequestParam String locale,
+        @RequestParam(required = false) Set<String> include,
+        @AuthenticationPrincipal User user
+    ) {
+        Set<String> parts = include == null || include.isEmpty() ? ListingPageService.ALL_PARTS : include;
+
+        ListingPageService.Page page = listingPageService.assemble(id, locale, user != null ? user.getId() : null, parts);
+
+        // Не успевшее или упавшее объявление — это перегрузка, а не отсутствие: клиент может повторить
+        if (page.timedOut().contains("listing")) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("message", "Объявление не загрузилось вовремя"));
+        }
+        if (page.failed().contains("listing")) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", "Объявление временно недоступно"));
+        }
+        if (parts.contains("listing") && !page.parts().containsKey("listing")) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Объявление не найдено"));
+        }
+
+        return ResponseEntity.ok(page.parts());
+    }
+
+    @GetMapping("/batch")
+    @PermitAll
+    public ResponseEntity<?> getListingsBatch(@RequestParam List<Long> ids, @RequestParam String locale) {
+
+        if (ids.size() > ListingBatchService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "message", "Слишком много объявлений в одном запросе",
+                "maxSize", ListingBatchService.MAX_BATCH_SIZE));
+        }
+
+        ListingBatchService.BatchResult result = listingBatchService.getListings(ids, locale);
+
+        return ResponseEntity.ok(Map.of("listings", result.listings(), "missing", result.missing()));
     }
 
     @GetMapping("/chat/get/{chatId}")
@@ -85,13 +149,31 @@ public class ListingsController {
             @RequestParam(required = false) Long categoryId,
             @RequestParam(defaultValue = "date") String sortBy,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) String searchQuery,
             @RequestParam(required = false, defaultValue = "false") boolean hasReviews,
             @RequestParam(required = false) String location,
             @RequestParam("locale") String lang,
             @AuthenticationPrincipal User user
     ) {
-        List<CatalogListingDTO> listings = listingQueryService.getSortedCatalogDto(
+        // Режим курсора: передан параметр cursor (пустой для первой страницы)
+        if (cursor != null) {
+            try {
+                CatalogService.CatalogPage catalogPage = catalogService.getCatalogPage(
+                    user, location, lang, cursor, categoryId, sortBy, searchQuery, hasReviews);
+
+                Map<String, Object> response = new HashMap<>();
+
+                response.put("listings", catalogPage.listings());
+                response.put("nextCursor", catalogPage.nextCursor());
+
+                return ResponseEntity.ok(response);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        }
+
+        List<CatalogListingDTO> listings = catalogService.getCatalog(
             user, location, lang, page, categoryId, sortBy, searchQuery, hasReviews);
 
         Map<String, Object> response = new HashMap<>();
@@ -101,6 +183,18 @@ public class ListingsController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/suggest")
+    @PreAuthorize("hasAuthority('LOAD_CATALOG')")
+    public ResponseEntity<?> suggest(
+            @RequestParam String prefix,
+            @RequestParam String locale,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        List<ListingSuggestIndex.Suggestion> suggestions = listingSuggestIndex.suggest(prefix, locale, Math.min(limit, 50));
+
+        return ResponseEntity.ok(Map.of("suggestions", suggestions));
+    }
+
     @GetMapping("/drafts")
     @PreAuthorize("hasAuthority('VIEW_LISTINGS_DRAFTS')")
     public ResponseEntity<?> getDraftListings(@AuthenticationPrincipal User user, @RequestParam String locale) {
@@ -128,6 +222,8 @@ public class ListingsController {
         User user = userQueryService.findUser(authUser.getId().toString());
 
         listingCommandService.toggleFavorite(user, listing);
+        // Итоговое состояние берём из базы, а не переключаем кэш: он мог не видеть предыдущее
+        favoriteListingsCache.setFavorite(user.getId(), listing.getId(), listingQueryService.isFavorite(user, listing));
         return ResponseEntity.ok(Map.of("message", "Избранное обновлено"));
     }
 
@@ -143,13 +239,17 @@ public class ListingsController {
     @GetMapping("/{id}/favorite/status")
     @PreAuthorize("hasAuthority('CHECK_FAVORITE_LISTING')")
     public ResponseEntity<?> isFavorite(@PathVariable Long id, @AuthenticationPrincipal User authUser) {
-        Listing listing = listingQueryService.findListing(id.toString());
-        User user = userQueryService.findUser(authUser.getId().toString());
-
-        boolean isFavorite = listingQueryService.isFavorite(user, listing);
+        boolean isFavorite = favoriteListingsCache.isFavorite(authUser.getId(), id);
         return  ResponseEntity.ok(Map.of("isFavorite", isFavorite));
     }
 
+    @GetMapping("/favorite/status")
+    @PreAuthorize("hasAuthority('CHECK_FAVORITE_LISTING')")
+    public ResponseEntity<?> getFavoriteStatuses(@RequestParam List<Long> ids, @AuthenticationPrincipal User authUser) {
+        List<Long> favoriteIds = favoriteListingsCache.filterFavorites(authUser.getId(), ids);
+        return ResponseEntity.ok(Map.of("favoriteIds", favoriteIds));
+    }
+
     @DeleteMapping("/{id}/delete")
     @PreAuthorize("hasAuthority('DELETE_LISTING')")
     public ResponseEntity<?> deleteListing(
@@ -219,19 +319,30 @@ public class ListingsController {
     @PermitAll
     public ResponseEntity<?> getImages(
         @AuthenticationPrincipal User user,
-        @PathVariable Long id
+        @PathVariable Long id,
+        WebRequest request
     ) {
+        String etag = resourceVersionService.listingImagesEtag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         List<ImageDTO> images = listingQueryService.getImages(id);
 
-        return ResponseEntity.ok(Map.of("images", images));
+        return ResponseEntity.ok().eTag(etag).body(Map.of("images", images));
     }
 
     @GetMapping("/translations/{id}")
     @PermitAll
-    public ResponseEntity<?> getTranslations(@PathVariable Long id) {
+    public ResponseEntity<?> getTranslations(@PathVariable Long id, WebRequest request) {
+        String etag = resourceVersionService.listingTranslationsEtag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         Map<String, ListingTranslationDTO> translations = listingQueryService.getTranslations(id);
 
-        return ResponseEntity.ok(Map.of("translations", translations));
+        return ResponseEntity.ok().eTag(etag).body(Map.of("translations", translations));
     }
 
     @PatchMapping("/modify/{id}")
@@ -251,9 +362,10 @@ public class ListingsController {
     @PermitAll
     public ResponseEntity<?> viewListing(@PathVariable Long id, @AuthenticationPrincipal User user) {
 
-        ListingViewDTO dto = new ListingViewDTO(user.getId(), id);
-        
-        listingViewProducer.listingViewed(dto);
+        // Повторные просмотры того же пользователя в окне не отправляем
+        if (listingViewDeduplicator.firstView(user.getId(), id)) {
+            listingViewAggregator.record(user.getId(), id);
+        }
 
         return ResponseEntity.ok(Map.of("message", "Просмотр сохранён"));
     }
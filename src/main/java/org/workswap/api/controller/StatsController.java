@@ -14,9 +14,14 @@ import java.util.stream.Collectors;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.workswap.api.services.components.CatalogCache;
+import org.workswap.api.services.components.InboundTimings;
+import org.workswap.api.services.components.OutboundBackpressure;
+import org.workswap.api.services.components.PayloadEncodingInterceptor;
 import org.workswap.common.dto.analytic.OnlineStatsMetricsDTO;
 import org.workswap.common.enums.IntervalType;
 import org.workswap.core.services.query.StatisticQueryService;
@@ -32,6 +37,10 @@ public class StatsController {
 
     private final ListingStatRepository listingStatRepository;
     private final StatisticQueryService statisticQueryService;
+    private final CatalogCache catalogCache;
+    private final PayloadEncodingInterceptor payloadEncodingInterceptor;
+    private final OutboundBackpressure outboundBackpressure;
+    private final InboundTimings inboundTimings;
 
     @GetMapping("/views")
     @PreAuthorize("hasAuthority('VIEW_LISTING_STATS')")
@@ -132,4 +141,37 @@ public class StatsController {
         int online = statisticQueryService.getLastOnlineSnapshot();
         return ResponseEntity.ok(Map.of("online", online));
     }
+
+    @GetMapping("/catalog-cache")
+    @PreAuthorize("hasAuthority('GET_CACHE_STATS')")
+    public ResponseEntity<?> getCatalogCacheStats() {
+        return ResponseEntity.ok(Map.of("catalogCache", catalogCache.getStats()));
+    }
+
+    // Размер кадров JSON против CBOR и стоимость перекодирования на реальном трафике
+    @GetMapping("/ws-payload")
+    @PreAuthorize("hasAuthority('GET_CACHE_STATS')")
+    public ResponseEntity<?> getWebSocketPayloadStats() {
+        return ResponseEntity.ok(Map.of("payloadEncoding", payloadEncodingInterceptor.getStats()));
+    }
+
+    @GetMapping("/ws-outbound")
+    @PreAuthorize("hasAuthority('GET_CACHE_STATS')")
+    public ResponseEntity<?> getWebSocketOutboundStats() {
+        return ResponseEntity.ok(Map.of("outbound", outboundBackpressure.getStats()));
+    }
+
+    @GetMapping("/ws-inbound")
+    @PreAuthorize("hasAuthority('GET_CACHE_STATS')")
+    public ResponseEntity<?> getWebSocketInboundStats() {
+        return ResponseEntity.ok(Map.of("inbound", inboundTimings.getStats()));
+    }
+
+    // Начать новый замер, например после переключения режима потоков
+    @PostMapping("/ws-inbound/reset")
+    @PreAuthorize("hasAuthority('GET_CACHE_STATS')")
+    public ResponseEntity<?> resetWebSocketInboundStats() {
+        inboundTimings.reset();
+        return ResponseEntity.ok().build();
+    }
 }
\ No newline at end of file
@@ -23,6 +23,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.workswap.api.services.ResourceVersionService;
 import org.workswap.common.dto.user.UserDTO;
 import org.workswap.common.enums.UserStatus;
 import org.workswap.core.services.command.UserCommandService;
@@ -45,6 +47,7 @@ public class UsersController {
     private final UserCommandService userCommandService;
     private final UserQueryService userQueryService;
     private final UserMappingService userMappingService;
+    private final ResourceVersionService resourceVersionService;
 
     @PostMapping("/telegram/connect")
     @PreAuthorize("hasAuthority('CONNECT_TELEGRAM')")
@@ -128,8 +131,13 @@ public class UsersController {
 
     @GetMapping("/get/{id}")
     @PermitAll
-    public ResponseEntity<?> getUser(@PathVariable Long id) {
-        return ResponseEntity.ok(Map.of("user", userMappingService.toDto(userQueryService.findUser(id.toString()))));
+    public ResponseEntity<?> getUser(@PathVariable Long id, WebRequest request) {
+        String etag = resourceVersionService.userEtag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).body(Map.of("user", userMappingService.toDto(userQueryService.findUser(id.toString()))));
     }
 
     @GetMapping("/recent/{amount}")
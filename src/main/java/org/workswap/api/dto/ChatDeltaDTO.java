@@ -0,0 +1,22 @@
+package org.workswap.api.dto;
+
+import org.workswap.common.dto.chat.MessageDTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Изменения одного чата в списке чатов: передаются только изменившиеся поля
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatDeltaDTO {
+    private Long chatId;
+    private MessageDTO lastMessage;
+    private Long unreadCount;
+
+    public ChatDeltaDTO(Long chatId) {
+        this.chatId = chatId;
+    }
+}
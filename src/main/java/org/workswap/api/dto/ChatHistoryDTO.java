@@ -0,0 +1,16 @@
+package org.workswap.api.dto;
+
+import java.util.List;
+
+import org.workswap.common.dto.chat.MessageDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ChatHistoryDTO {
+    private Long chatId;
+    private List<MessageDTO> messages;
+    private boolean hasMore;
+}
@@ -0,0 +1,13 @@
+package org.workswap.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Запрос окна истории: либо beforeMessageId (листание назад), либо sinceMessageId (досинхронизация после переподключения)
+@Data
+@NoArgsConstructor
+public class ChatHistoryRequest {
+    private Long beforeMessageId;
+    private Long sinceMessageId;
+    private Integer limit;
+}
@@ -0,0 +1,19 @@
+package org.workswap.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Одна страница списка чатов одним кадром; version передаётся в следующий запрос как sinceVersion.
+// unreadCounts есть только в ответе на запрос с sinceVersion: непрочитанные по всем чатам, отсутствующие — ноль
+@Data
+@AllArgsConstructor
+public class ChatListDTO {
+    private List<ChatSummaryDTO> chats;
+    private int page;
+    private boolean hasMore;
+    private Long version;
+    private Map<Long, Long> unreadCounts;
+}
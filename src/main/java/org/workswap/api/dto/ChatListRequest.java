@@ -0,0 +1,13 @@
+package org.workswap.api.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Запрос страницы списка чатов; sinceVersion — версия из прошлого ответа, тогда придут только изменившиеся чаты
+@Data
+@NoArgsConstructor
+public class ChatListRequest {
+    private Integer page;
+    private Integer size;
+    private Long sinceVersion;
+}
@@ -0,0 +1,16 @@
+package org.workswap.api.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Найденное сообщение: по chatId и messageId клиент открывает историю с beforeMessageId = messageId + 1
+@Data
+@AllArgsConstructor
+public class ChatSearchResultDTO {
+    private Long chatId;
+    private Long messageId;
+    private String snippet;
+    private LocalDateTime sentAt;
+}
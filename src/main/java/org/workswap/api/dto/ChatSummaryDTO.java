@@ -0,0 +1,23 @@
+package org.workswap.api.dto;
+
+import java.time.LocalDateTime;
+
+import org.workswap.common.dto.chat.MessageDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSummaryDTO {
+    private Long id;
+    private Long interlocutorId;
+    private String interlocutorName;
+    private String interlocutorAvatarUrl;
+    private boolean temporary;
+    private MessageDTO lastMessage;
+    private LocalDateTime lastActivityAt;
+    private long unreadCount;
+}
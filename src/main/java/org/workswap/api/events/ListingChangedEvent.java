@@ -0,0 +1,12 @@
+package org.workswap.api.events;
+
+import java.util.Set;
+
+// Событие изменения объявления, публикуется после успешной записи через ListingCommandService
+public record ListingChangedEvent(Long listingId, Set<Long> categoryIds, Type type) {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+}
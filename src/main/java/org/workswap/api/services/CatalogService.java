@@ -0,0 +1,182 @@
+package org.workswap.api.services;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+import org.workswap.api.services.components.CatalogCache;
+import org.workswap.api.services.components.CatalogCursor;
+import org.workswap.api.services.components.CatalogKeysetQuery;
+import org.workswap.api.services.components.CatalogSort;
+import org.workswap.api.services.components.FavoriteListingsCache;
+import org.workswap.api.services.components.ListingSearchIndex;
+import org.workswap.common.dto.listing.CatalogListingDTO;
+import org.workswap.core.services.mapping.ListingMappingService;
+import org.workswap.core.services.query.ListingQueryService;
+import org.workswap.datasource.central.model.User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class CatalogService {
+
+    public record CatalogPage(List<CatalogListingDTO> listings, String nextCursor) {}
+
+    private final CatalogCache catalogCache;
+    private final CatalogKeysetQuery catalogKeysetQuery;
+    private final ListingSearchIndex listingSearchIndex;
+    private final FavoriteListingsCache favoriteListingsCache;
+    private final ListingQueryService listingQueryService;
+    private final ListingMappingService listingMappingService;
+    private final ObjectMapper objectMapper;
+
+    public List<CatalogListingDTO> getCatalog(
+        User user,
+        String location,
+        String lang,
+        int page,
+        Long categoryId,
+        String sortBy,
+        String searchQuery,
+        boolean hasReviews
+    ) {
+        String query = normalizeQuery(searchQuery);
+
+        // Индекс заменяет поиск ядра, только если остальные фильтры и сортировка выражаются той же выборкой,
+        // что и в режиме курсора; иначе фильтрует и сортирует ядро
+        CatalogKeysetQuery.Filter unresolved = new CatalogKeysetQuery.Filter(categoryId, query, null, hasReviews, location);
+        Set<Long> matchedIds = CatalogSort.isSupported(sortBy) && catalogKeysetQuery.supports(unresolved)
+            ? resolveSearch(query, lang)
+            : null;
+
+        if (matchedIds != null && matchedIds.isEmpty()) {
+            return List.of();
+        }
+
+        Supplier<List<CatalogListingDTO>> loader;
+        if (matchedIds != null) {
+            // Совпадения уже найдены индексом, в базу идём только за ними с тем же условием видимости, что и каталог
+            CatalogKeysetQuery.Filter filter = new CatalogKeysetQuery.Filter(categoryId, query, matchedIds, hasReviews, location);
+            int pageSize = catalogKeysetQuery.getPageSize();
+
+            loader = () -> {
+                List<CatalogKeysetQuery.Row> rows = catalogKeysetQuery.fetch(
+                    CatalogSort.fromParam(sortBy), null, page * pageSize, filter);
+                return toCatalogDtos(rows.subList(0, Math.min(rows.size(), pageSize)), lang);
+            };
+        } else {
+            loader = () -> listingQueryService.getSortedCatalogDto(
+                user, location, lang, page, categoryId, sortBy, query, hasReviews);
+        }
+
+        CatalogCache.Key key = new CatalogCache.Key(categoryId, sortBy, page, query, hasReviews, location, lang);
+
+        List<CatalogListingDTO> shared = catalogCache.get(key, loader);
+
+        return applyFavorites(shared, user);
+    }
+
+    public CatalogPage getCatalogPage(
+        User user,
+        String location,
+        String lang,
+        String cursor,
+        Long categoryId,
+        String sortBy,
+        String searchQuery,
+        boolean hasReviews
+    ) {
+        CatalogSort sort = CatalogSort.fromParam(sortBy);
+
+        CatalogCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = CatalogCursor.decode(cursor);
+            if (after.sort() != sort) {
+                throw new IllegalArgumentException("Курсор получен для другой сортировки");
+            }
+        }
+
+        String query = normalizeQuery(searchQuery);
+
+        // Фильтр, который не выражается выборкой по ключу, отдаём ядру постранично, курсор тогда несёт номер страницы
+        CatalogKeysetQuery.Filter unresolved = new CatalogKeysetQuery.Filter(categoryId, query, null, hasReviews, location);
+        if ((after != null && after.isPage()) || !catalogKeysetQuery.supports(unresolved)) {
+            int page = after != null && after.isPage() ? after.page() : 0;
+            List<CatalogListingDTO> listings = listingQueryService.getSortedCatalogDto(
+                user, location, lang, page, categoryId, sortBy, query, hasReviews);
+            String nextCursor = listings.isEmpty() ? null : CatalogCursor.page(sort, page + 1).encode();
+            return new CatalogPage(listings, nextCursor);
+        }
+
+        Set<Long> matchedIds = resolveSearch(query, lang);
+
+        if (matchedIds != null && matchedIds.isEmpty()) {
+            return new CatalogPage(List.of(), null);
+        }
+
+        CatalogKeysetQuery.Filter filter = new CatalogKeysetQuery.Filter(categoryId, query, matchedIds, hasReviews, location);
+        List<CatalogKeysetQuery.Row> rows = catalogKeysetQuery.fetch(sort, after, 0, filter);
+
+        // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+        int pageSize = catalogKeysetQuery.getPageSize();
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            CatalogKeysetQuery.Row last = rows.get(rows.size() - 1);
+            Object sortKey = last.sortKey();
+            if (sortKey instanceof Number number) {
+                sortKey = number.doubleValue();
+            }
+            nextCursor = CatalogCursor.after(sort, sortKey, last.listing().getId()).encode();
+        }
+
+        List<CatalogListingDTO> listings = toCatalogDtos(rows, lang);
+        listings.forEach(dto -> dto.setFavorite(favoriteListingsCache.isFavorite(user.getId(), dto.getId())));
+
+        return new CatalogPage(listings, nextCursor);
+    }
+
+    // null — поиск не задан или индекс ещё строится, тогда фильтрует база
+    private Set<Long> resolveSearch(String query, String lang) {
+        if (query == null || !listingSearchIndex.isReady()) {
+            return null;
+        }
+        return listingSearchIndex.search(query, lang);
+    }
+
+    private List<CatalogListingDTO> toCatalogDtos(List<CatalogKeysetQuery.Row> rows, String lang) {
+        Locale locale = Locale.of(lang);
+
+        return rows.stream()
+                   .map(row -> listingMappingService.convertToCatalogDTO(row.listing(), locale))
+                   .collect(Collectors.toList());
+    }
+
+    // Закэшированные DTO общие для всех, поэтому избранное проставляем на копиях
+    private List<CatalogListingDTO> applyFavorites(List<CatalogListingDTO> listings, User user) {
+        return listings.stream()
+                       .map(dto -> {
+                           CatalogListingDTO copy = objectMapper.convertValue(dto, CatalogListingDTO.class);
+                           copy.setFavorite(favoriteListingsCache.isFavorite(user.getId(), copy.getId()));
+                           return copy;
+                       })
+                       .toList();
+    }
+
+    private String normalizeQuery(String searchQuery) {
+        if (searchQuery == null || searchQuery.isBlank()) {
+            return null;
+        }
+        return searchQuery.trim();
+    }
+}
@@ -0,0 +1,66 @@
+package org.workswap.api.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.workswap.common.dto.listing.ListingDTO;
+import org.workswap.core.services.mapping.ListingMappingService;
+import org.workswap.datasource.central.model.Listing;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class ListingBatchService {
+
+    public static final int MAX_BATCH_SIZE = 100;
+
+    public record BatchResult(List<ListingDTO> listings, List<Long> missing) {}
+
+    private final ListingMappingService listingMappingService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Один запрос IN по всем id, ленивые связи догружаются пачками (hibernate.default_batch_fetch_size)
+    @Transactional(readOnly = true)
+    public BatchResult getListings(List<Long> ids, String lang) {
+        List<Long> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        if (requested.isEmpty()) {
+            return new BatchResult(List.of(), List.of());
+        }
+
+        Map<Long, Listing> found = entityManager
+            .createQuery("SELECT l FROM Listing l LEFT JOIN FETCH l.author LEFT JOIN FETCH l.category WHERE l.id IN :ids", Listing.class)
+            .setParameter("ids", requested)
+            .getResultList()
+            .stream()
+            .collect(Collectors.toMap(Listing::getId, Function.identity()));
+
+        Locale locale = Locale.of(lang);
+        List<ListingDTO> listings = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+
+        // Сохраняем порядок, в котором id пришли в запросе
+        for (Long id : requested) {
+            Listing listing = found.get(id);
+            if (listing == null) {
+                missing.add(id);
+            } else {
+                listings.add(listingMappingService.convertToDTO(listing, locale));
+            }
+        }
+
+        return new BatchResult(listings, missing);
+    }
+}
@@ -0,0 +1,179 @@
+package org.workswap.api.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.workswap.api.services.components.FavoriteListingsCache;
+import org.workswap.core.services.ReviewService;
+import org.workswap.core.services.mapping.UserMappingService;
+import org.workswap.core.services.query.ListingQueryService;
+import org.workswap.datasource.central.model.Listing;
+
+import jakarta.annotation.PreDestroy;
+
+// Сборка всей страницы объявления за один запрос: части грузятся параллельно на виртуальных потоках.
+// Каждая часть держит соединение из пула, поэтому одновременных запросов частей по всему узлу не больше max-parallel,
+// а у транзакции части есть таймаут, который останавливает и сам запрос в базе.
+@Service
+public class ListingPageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingPageService.class);
+
+    public static final Set<String> ALL_PARTS = Set.of("listing", "images", "translations", "favorite", "reviews", "author");
+
+    // Итог сборки: failed — части, упавшие с ошибкой, timedOut — не успевшие за таймаут
+    public record Page(Map<String, Object> parts, List<String> failed, List<String> timedOut) {}
+
+    private final ListingQueryService listingQueryService;
+    private final ReviewService reviewService;
+    private final UserMappingService userMappingService;
+    private final FavoriteListingsCache favoriteListingsCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore connections;
+    private final long timeoutMillis;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ListingPageService(
+        ListingQueryService listingQueryService,
+        ReviewService reviewService,
+        UserMappingService userMappingService,
+        FavoriteListingsCache favoriteListingsCache,
+        PlatformTransactionManager transactionManager,
+        @Value("${listing.page.timeout-ms:5000}") long timeoutMillis,
+        @Value("${listing.page.max-parallel:4}") int maxParallel
+    ) {
+        this.listingQueryService = listingQueryService;
+        this.reviewService = reviewService;
+        this.userMappingService = userMappingService;
+        this.favoriteListingsCache = favoriteListingsCache;
+        this.timeoutMillis = timeoutMillis;
+        this.connections = new Semaphore(maxParallel);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Таймаут транзакции Spring передаёт в запросы JPA, и база прерывает запрос, а не только ожидание его результата
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, (timeoutMillis + 999) / 1000));
+    }
+
+    public Page assemble(Long id, String locale, Long userId, Set<String> include) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<String, CompletableFuture<Object>> tasks = new LinkedHashMap<>();
+
+        if (include.contains("listing")) {
+            tasks.put("listing", submit(deadline, () -> listingQueryService.getListingDTO(id, locale)));
+        }
+        if (include.contains("images")) {
+            tasks.put("images", submit(deadline, () -> listingQueryService.getImages(id)));
+        }
+        if (include.contains("translations")) {
+            tasks.put("translations", submit(deadline, () -> listingQueryService.getTranslations(id)));
+        }
+        if (include.contains("favorite") && userId != null) {
+            tasks.put("isFavorite", submit(deadline, () -> favoriteListingsCache.isFavorite(userId, id)));
+        }
+        if (include.contains("reviews")) {
+            tasks.put("reviews", submit(deadline, () -> reviewService.getReviewsByListingId(id)
+                                                                     .stream()
+                                                                     .map(reviewService::convertToDTO)
+                                                                     .toList()));
+        }
+        if (include.contains("author")) {
+            tasks.put("author", submit(deadline, () -> {
+                Listing listing = listingQueryService.findListing(id.toString());
+                return listing == null ? null : userMappingService.toDto(listing.getAuthor());
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.values().toArray(CompletableFuture[]::new))
+                             .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                             .exceptionally(e -> null)
+                             .join();
+        } catch (Exception e) {
+            logger.debug("Сборка страницы объявления {} завершилась с ошибкой: {}", id, e.getMessage());
+        }
+
+        // Упавшие или не успевшие части не ломают страницу, клиент дозапросит их отдельно
+        Map<String, Object> page = new HashMap<>();
+        List<String> failed = new ArrayList<>();
+        List<String> timedOut = new ArrayList<>();
+        tasks.forEach((part, future) -> {
+            if (!future.isDone()) {
+                // Незапущенная часть увидит истёкший срок и не возьмёт соединение, запущенную остановит таймаут транзакции
+                timedOut.add(part);
+            } else if (future.isCompletedExceptionally()) {
+                (isTimeout(future.exceptionNow()) ? timedOut : failed).add(part);
+            } else {
+                Object value = future.join();
+                if (value != null) {
+                    page.put(part, value);
+                }
+            }
+        });
+
+        if (!failed.isEmpty() || !timedOut.isEmpty()) {
+            List<String> missing = new ArrayList<>(failed);
+            missing.addAll(timedOut);
+            page.put("failed", missing);
+        }
+
+        return new Page(page, failed, timedOut);
+    }
+
+    // Каждая часть в своей транзакции только для чтения, чтобы ленивые связи грузились вне потока запроса
+    private CompletableFuture<Object> submit(long deadline, Supplier<Object> loader) {
+        return CompletableFuture.supplyAsync(() -> {
+            long remaining = deadline - System.nanoTime();
+            try {
+                if (remaining <= 0 || !connections.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    throw new CompletionException(new TimeoutException("Нет свободного слота для части страницы"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return readOnlyTransaction.execute(status -> loader.get());
+            } finally {
+                connections.release();
+            }
+        }, executor);
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof TimeoutException
+                || current instanceof QueryTimeoutException
+                || current instanceof TransactionTimedOutException
+                || current instanceof jakarta.persistence.QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package org.workswap.api.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.workswap.api.services.components.ResourceStamps;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+// Версии ресурсов для ETag из отметок изменения: один лёгкий запрос без маппинга в DTO, сравнение до маппинга.
+// Отметки сущностей (updatedAt) и счётчики, которые меняют другие сервисы (просмотры, рейтинг), берутся из базы;
+// правки переводов, порядка картинок и категорий — из ResourceStamps, их сбрасывает каждое изменение через API.
+// null — версию определить нельзя, тогда отдаём ответ как обычно, без ETag.
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class ResourceVersionService {
+
+    private static final long ALL = 0;
+
+    private final ResourceStamps resourceStamps;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // В DTO объявления есть автор и название категории, поэтому в версии и их отметки
+    public String listingEtag(Long id, String locale) {
+        List<Object[]> rows = entityManager
+            .createQuery("SELECT l.updatedAt, l.views, l.rating, a.updatedAt FROM Listing l LEFT JOIN l.author a"
+                + " WHERE l.id = :id", Object[].class)
+            .setParameter("id", id)
+            .getResultList();
+
+        if (rows.isEmpty() || rows.get(0)[0] == null) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return "listing-" + id + "-" + locale
+            + "-" + millis((LocalDateTime) row[0]) + "-" + row[1] + "-" + row[2] + "-" + millis((LocalDateTime) row[3])
+            + "-" + resourceStamps.get(ResourceStamps.LISTING, id)
+            + "-" + resourceStamps.get(ResourceStamps.CATEGORIES, ALL);
+    }
+
+    public String listingTranslationsEtag(Long id) {
+        return "translations-" + id
+            + "-" + children("SELECT COUNT(t), MAX(t.id) FROM ListingTranslation t WHERE t.listing.id = :id", id)
+            + "-" + resourceStamps.get(ResourceStamps.LISTING, id);
+    }
+
+    // Картинки добавляются и удаляются напрямую через ImageRepository — это видно по числу и id строк
+    public String listingImagesEtag(Long id) {
+        return "images-" + id
+            + "-" + children("SELECT COUNT(i), MAX(i.id) FROM Image i WHERE i.listing.id = :id", id)
+            + "-" + resourceStamps.get(ResourceStamps.LISTING, id);
+    }
+
+    public String rootCategoriesEtag(String locale) {
+        Object[] row = entityManager.createQuery("SELECT COUNT(c), MAX(c.id) FROM Category c", Object[].class)
+                                    .getSingleResult();
+        return "categories-" + locale + "-" + row[0] + "-" + row[1] + "-" + resourceStamps.get(ResourceStamps.CATEGORIES, ALL);
+    }
+
+    public void categoriesChanged() {
+        resourceStamps.changed(ResourceStamps.CATEGORIES, ALL);
+    }
+
+    public String userEtag(Long id) {
+        List<LocalDateTime> result = entityManager.createQuery("SELECT u.updatedAt FROM User u WHERE u.id = :id", LocalDateTime.class)
+                                                  .setParameter("id", id)
+                                                  .getResultList();
+
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return "user-" + id + "-" + millis(result.get(0));
+    }
+
+    private String children(String jpql, Long id) {
+        Object[] row = entityManager.createQuery(jpql, Object[].class)
+                                    .setParameter("id", id)
+                                    .getSingleResult();
+        return row[0] + "-" + row[1];
+    }
+
+    private static long millis(LocalDateTime stamp) {
+        return stamp == null ? 0 : stamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
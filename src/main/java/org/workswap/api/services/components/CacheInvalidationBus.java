@@ -0,0 +1,121 @@
+package org.workswap.api.services.components;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+// Рассылка инвалидаций локальных кэшей на остальные узлы API через fanout-обменник.
+// При propagation: none инвалидация только локальная, расхождение между узлами ограничено временем жизни кэша.
+@Component
+public class CacheInvalidationBus implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    public record Invalidation(String node, String cache, long key) {}
+
+    private final ObjectProvider<RabbitTemplate> rabbitTemplate;
+    private final ObjectProvider<ConnectionFactory> connectionFactory;
+    private final ObjectMapper objectMapper;
+    private final boolean rabbit;
+    private final String exchange;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, LongConsumer> handlers = new ConcurrentHashMap<>();
+
+    private SimpleMessageListenerContainer container;
+
+    public CacheInvalidationBus(
+        ObjectProvider<RabbitTemplate> rabbitTemplate,
+        ObjectProvider<ConnectionFactory> connectionFactory,
+        ObjectMapper objectMapper,
+        @Value("${cache.invalidation.propagation:none}") String propagation,
+        @Value("${cache.invalidation.rabbit.exchange:cache.invalidation}") String exchange
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.connectionFactory = connectionFactory;
+        this.objectMapper = objectMapper;
+        this.rabbit = "rabbit".equals(propagation);
+        this.exchange = exchange;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!rabbit) {
+            return;
+        }
+
+        ConnectionFactory factory = connectionFactory.getObject();
+        RabbitAdmin admin = new RabbitAdmin(factory);
+        FanoutExchange fanout = new FanoutExchange(exchange, true, false);
+        AnonymousQueue queue = new AnonymousQueue();
+        admin.declareExchange(fanout);
+        admin.declareQueue(queue);
+        admin.declareBinding(BindingBuilder.bind(queue).to(fanout));
+
+        container = new SimpleMessageListenerContainer(factory);
+        container.setQueues(queue);
+        container.setMessageListener(message -> {
+            try {
+                Invalidation invalidation = objectMapper.readValue(message.getBody(), Invalidation.class);
+                if (nodeId.equals(invalidation.node())) {
+                    return;
+                }
+                LongConsumer handler = handlers.get(invalidation.cache());
+                if (handler != null) {
+                    handler.accept(invalidation.key());
+                }
+            } catch (Exception e) {
+                logger.warn("Не удалось обработать инвалидацию кэша: {}", e.getMessage());
+            }
+        });
+        container.start();
+    }
+
+    public void subscribe(String cache, LongConsumer handler) {
+        handlers.put(cache, handler);
+    }
+
+    // Только для остальных узлов: свой кэш вызывающий обновляет сам
+    public void publish(String cache, long key) {
+        if (!rabbit) {
+            return;
+        }
+        try {
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            properties.setExpiration("60000");
+            byte[] body = objectMapper.writeValueAsBytes(new Invalidation(nodeId, cache, key));
+            rabbitTemplate.getObject().send(exchange, "", new Message(body, properties));
+        } catch (Exception e) {
+            logger.warn("Не удалось разослать инвалидацию кэша {}: {}", cache, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.workswap.api.services.components;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.workswap.api.events.ListingChangedEvent;
+import org.workswap.common.dto.listing.CatalogListingDTO;
+import org.workswap.core.services.CategoryService;
+import org.workswap.datasource.central.model.listingModels.Category;
+
+// Ограниченный по размеру и времени жизни кэш страниц каталога.
+// Хранит только общие для всех пользователей данные, персональные поля накладываются сверху.
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    public record Key(
+        Long categoryId,
+        String sortBy,
+        int page,
+        String searchQuery,
+        boolean hasReviews,
+        String location,
+        String locale
+    ) {}
+
+    private record Entry(List<CatalogListingDTO> listings, long createdAt) {}
+
+    private final CategoryService categoryService;
+
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Растёт при каждой инвалидации, чтобы не сохранить страницу, загруженную до изменения
+    private long generation = 0;
+
+    public CatalogCache(
+        CategoryService categoryService,
+        @Value("${catalog.cache.max-size:2000}") int maxSize,
+        @Value("${catalog.cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.categoryService = categoryService;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<CatalogListingDTO> get(Key key, Supplier<List<CatalogListingDTO>> loader) {
+        long loadedGeneration;
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.createdAt() < ttlMillis) {
+                    hits.incrementAndGet();
+                    return entry.listings();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            loadedGeneration = generation;
+        }
+
+        misses.incrementAndGet();
+        List<CatalogListingDTO> listings = List.copyOf(loader.get());
+
+        synchronized (entries) {
+            if (loadedGeneration == generation) {
+                entries.put(key, new Entry(listings, System.currentTimeMillis()));
+            }
+        }
+
+        return listings;
+    }
+
+    // После поискового индекса, чтобы перезагруженные страницы не взяли устаревшие совпадения
+    @Order(10)
+    @EventListener
+    public void onListingChanged(ListingChangedEvent event) {
+        if (event.categoryIds().isEmpty()) {
+            invalidateAll();
+            return;
+        }
+
+        // Страницы родительских категорий тоже содержат объявление
+        Set<Long> affected = new HashSet<>();
+        for (Long categoryId : event.categoryIds()) {
+            categoryService.getCategoryPath(categoryId)
+                           .stream()
+                           .map(Category::getId)
+                           .forEach(affected::add);
+            affected.add(categoryId);
+        }
+
+        invalidate(affected);
+    }
+
+    public void invalidate(Set<Long> categoryIds) {
+        int removed;
+        synchronized (entries) {
+            int before = entries.size();
+            entries.keySet().removeIf(key -> key.categoryId() == null || categoryIds.contains(key.categoryId()));
+            removed = before - entries.size();
+            generation++;
+        }
+        invalidations.incrementAndGet();
+        logger.debug("Инвалидированы страницы каталога для категорий {}: {}", categoryIds, removed);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+        invalidations.incrementAndGet();
+        logger.debug("Кэш каталога полностью очищен");
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        return Map.of(
+            "size", size,
+            "hits", hitCount,
+            "misses", missCount,
+            "evictions", evictions.get(),
+            "invalidations", invalidations.get(),
+            "hitRate", total == 0 ? 0.0 : (double) hitCount / total
+        );
+    }
+}
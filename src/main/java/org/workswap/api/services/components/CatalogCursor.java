@@ -0,0 +1,56 @@
+package org.workswap.api.services.components;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Непрозрачный курсор каталога: сортировка, значение ключа сортировки и id последнего объявления.
+// sortKey может быть null — у объявления нет цены или рейтинга.
+// page задан только когда фильтр не выражается выборкой по ключу и страницы отдаёт ядро.
+public record CatalogCursor(CatalogSort sort, Object sortKey, Long lastId, Integer page) {
+
+    private static final String SEPARATOR = "|";
+    private static final String PAGE_MARK = "~";
+
+    public static CatalogCursor after(CatalogSort sort, Object sortKey, Long lastId) {
+        return new CatalogCursor(sort, sortKey, lastId, null);
+    }
+
+    public static CatalogCursor page(CatalogSort sort, int page) {
+        return new CatalogCursor(sort, null, null, page);
+    }
+
+    public boolean isPage() {
+        return page != null;
+    }
+
+    public String encode() {
+        String raw = isPage()
+            ? sort.name() + SEPARATOR + PAGE_MARK + page
+            : sort.name() + SEPARATOR + (sortKey == null ? "" : sortKey) + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CatalogCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+
+            CatalogSort sort = CatalogSort.valueOf(parts[0]);
+            if (parts.length == 2 && parts[1].startsWith(PAGE_MARK)) {
+                return page(sort, Integer.parseInt(parts[1].substring(PAGE_MARK.length())));
+            }
+
+            Object sortKey = null;
+            if (!parts[1].isEmpty()) {
+                sortKey = sort.isDateKey()
+                    ? LocalDateTime.parse(parts[1])
+                    : Double.valueOf(parts[1]);
+            }
+
+            return after(sort, sortKey, Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор каталога", e);
+        }
+    }
+}
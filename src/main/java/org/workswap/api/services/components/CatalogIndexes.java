@@ -0,0 +1,42 @@
+package org.workswap.api.services.components;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// Индексы под выборку каталога по ключу: (temporary, ключ сортировки, id) на каждую сортировку.
+// Схема ведётся ddl-auto по сущностям ядра, поэтому недостающие индексы создаём сами при старте.
+@Component
+@RequiredArgsConstructor
+public class CatalogIndexes {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogIndexes.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${catalog.indexes.create:true}")
+    private boolean create;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissing() {
+        if (!create) {
+            return;
+        }
+
+        for (CatalogSort sort : CatalogSort.values()) {
+            String name = "idx_listing_catalog_" + sort.getParam();
+            try {
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name
+                    + " ON listing (temporary, " + sort.getColumn() + ", id)");
+            } catch (Exception e) {
+                logger.warn("Не удалось создать индекс {}: {}", name, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.workswap.core.services.CategoryService;
+import org.workswap.datasource.central.model.Listing;
+import org.workswap.datasource.central.model.listingModels.Category;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+
+// Выборка каталога по ключу (seek) вместо OFFSET: стоимость любой страницы равна стоимости первой
+@Component
+@RequiredArgsConstructor
+public class CatalogKeysetQuery {
+
+    public record Row(Listing listing, Object sortKey) {}
+
+    // listingIds — заранее найденные поисковым индексом объявления, заменяет LIKE по searchQuery
+    public record Filter(Long categoryId, String searchQuery, Set<Long> listingIds, boolean hasReviews, String location) {}
+
+    private final CategoryService categoryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalog.page-size:20}")
+    private int pageSize;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // Фильтр выражается выборкой по ключу; иначе страницы отдаёт ядро по номеру страницы
+    public boolean supports(Filter filter) {
+        return filter.location() == null || filter.location().isBlank() || isNumeric(filter.location());
+    }
+
+    @Transactional(readOnly = true)
+    public List<Row> fetch(CatalogSort sort, CatalogCursor after, int offset, Filter filter) {
+        String key = sort.getExpression();
+        StringBuilder jpql = new StringBuilder("SELECT l, ")
+            .append(key)
+            .append(" FROM Listing l WHERE ")
+            .append(CatalogVisibility.PREDICATE);
+        Map<String, Object> params = new HashMap<>();
+
+        if (filter.categoryId() != null) {
+            jpql.append(" AND l.category.id IN :categoryIds");
+            params.put("categoryIds", withDescendants(filter.categoryId()));
+        }
+
+        if (filter.location() != null && !filter.location().isBlank()) {
+            if (!isNumeric(filter.location())) {
+                throw new IllegalStateException("Фильтр по местоположению не поддерживается выборкой по ключу");
+            }
+            jpql.append(" AND (l.location.id = :locationId OR l.location.country.id = :locationId)");
+            params.put("locationId", Long.valueOf(filter.location()));
+        }
+
+        if (filter.hasReviews()) {
+            jpql.append(" AND EXISTS (SELECT r.id FROM Review r WHERE r.listing = l)");
+        }
+
+        if (filter.listingIds() != null) {
+            jpql.append(" AND l.id IN :listingIds");
+            params.put("listingIds", filter.listingIds());
+        } else if (filter.searchQuery() != null) {
+            jpql.append(" AND EXISTS (SELECT t.id FROM ListingTranslation t WHERE t.listing = l")
+                .append(" AND (LOWER(t.title) LIKE :query OR LOWER(t.description) LIKE :query))");
+            params.put("query", "%" + filter.searchQuery().toLowerCase() + "%");
+        }
+
+        // Условие продолжения: (ключ, id) строго после последней строки предыдущей страницы.
+        // NULL в MariaDB меньше любого значения: при убывании идёт в конце, при возрастании — в начале
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        String comparison = sort.isDescending() ? "<" : ">";
+        if (after != null) {
+            params.put("lastId", after.lastId());
+            if (after.sortKey() == null) {
+                jpql.append(sort.isDescending()
+                    ? " AND (" + key + " IS NULL AND l.id < :lastId)"
+                    : " AND ((" + key + " IS NULL AND l.id > :lastId) OR " + key + " IS NOT NULL)");
+            } else {
+                jpql.append(" AND (").append(key).append(" ").append(comparison).append(" :lastKey")
+                    .append(" OR (").append(key).append(" = :lastKey AND l.id ").append(comparison).append(" :lastId)")
+                    .append(sort.isDescending() ? " OR " + key + " IS NULL)" : ")");
+                params.put("lastKey", after.sortKey());
+            }
+        }
+
+        jpql.append(" ORDER BY ").append(key).append(" ").append(direction)
+            .append(", l.id ").append(direction);
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        query.setFirstResult(offset);
+        query.setMaxResults(pageSize + 1);
+
+        List<Row> rows = new ArrayList<>();
+        for (Object[] result : query.getResultList()) {
+            rows.add(new Row((Listing) result[0], result[1]));
+        }
+        return rows;
+    }
+
+    private static boolean isNumeric(String value) {
+        return value.chars().allMatch(Character::isDigit);
+    }
+
+    private Set<Long> withDescendants(Long categoryId) {
+        Set<Long> ids = new HashSet<>();
+        List<Long> queue = new ArrayList<>(List.of(categoryId));
+
+        while (!queue.isEmpty()) {
+            Long current = queue.remove(queue.size() - 1);
+            if (ids.add(current)) {
+                categoryService.getChildCategories(current)
+                               .stream()
+                               .map(Category::getId)
+                               .forEach(queue::add);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,63 @@
+package org.workswap.api.services.components;
+
+// Поддерживаемые в режиме курсора сортировки каталога и их ключи в сущности Listing.
+// Ключ — сырая колонка без COALESCE/CAST, иначе база не может взять порядок из индекса (temporary, колонка, id).
+public enum CatalogSort {
+
+    DATE("date", "l.createdAt", "created_at", true, true),
+    RATING("rating", "l.rating", "rating", false, true),
+    POPULARITY("popularity", "l.views", "views", false, true),
+    PRICE("price", "l.price", "price", false, false);
+
+    private final String param;
+    private final String expression;
+    private final String column;
+    private final boolean dateKey;
+    private final boolean descending;
+
+    CatalogSort(String param, String expression, String column, boolean dateKey, boolean descending) {
+        this.param = param;
+        this.expression = expression;
+        this.column = column;
+        this.dateKey = dateKey;
+        this.descending = descending;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isDateKey() {
+        return dateKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public static boolean isSupported(String sortBy) {
+        for (CatalogSort sort : values()) {
+            if (sort.param.equalsIgnoreCase(sortBy)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static CatalogSort fromParam(String sortBy) {
+        for (CatalogSort sort : values()) {
+            if (sort.param.equalsIgnoreCase(sortBy)) {
+                return sort;
+            }
+        }
+        return DATE;
+    }
+}
@@ -0,0 +1,18 @@
+package org.workswap.api.services.components;
+
+import org.workswap.datasource.central.model.Listing;
+
+// Единственное место, где API решает, попадает ли объявление в каталог.
+// Совпадает с правилом ядра для getSortedCatalogDto: черновик временный, публикация снимает флаг.
+// Все выборки каталога на стороне API (курсор, поисковый индекс, подсказки) берут условие отсюда.
+public final class CatalogVisibility {
+
+    // Условие JPQL для псевдонима l сущности Listing
+    public static final String PREDICATE = "l.temporary = false";
+
+    private CatalogVisibility() {}
+
+    public static boolean isVisible(Listing listing) {
+        return listing != null && !listing.isTemporary();
+    }
+}
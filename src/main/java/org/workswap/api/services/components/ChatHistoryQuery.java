@@ -0,0 +1,86 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.workswap.datasource.central.model.chat.Message;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Диапазонные выборки истории чата по (chat_id, id): индекс внешнего ключа chat_id в InnoDB
+// уже содержит первичный ключ, поэтому и окно "до id", и досинхронизация "после id" идут по индексу
+@Component
+@Transactional(readOnly = true)
+public class ChatHistoryQuery {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    public record Window(List<Message> messages, boolean hasMore) {}
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Последние сообщения перед beforeMessageId (или самые последние), в хронологическом порядке
+    public Window before(Long chatId, Long beforeMessageId, int limit) {
+        String jpql = "SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.receiver WHERE m.chat.id = :chatId"
+            + (beforeMessageId != null ? " AND m.id < :before" : "")
+            + " ORDER BY m.id DESC";
+
+        var query = entityManager.createQuery(jpql, Message.class)
+                                 .setParameter("chatId", chatId)
+                                 .setMaxResults(limit + 1);
+        if (beforeMessageId != null) {
+            query.setParameter("before", beforeMessageId);
+        }
+
+        List<Message> messages = new ArrayList<>(query.getResultList());
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages.remove(messages.size() - 1);
+        }
+        Collections.reverse(messages);
+
+        return new Window(messages, hasMore);
+    }
+
+    // Всё, что клиент пропустил после sinceMessageId, по возрастанию
+    public Window since(Long chatId, Long sinceMessageId, int limit) {
+        List<Message> messages = new ArrayList<>(entityManager
+            .createQuery("SELECT m FROM Message m JOIN FETCH m.sender JOIN FETCH m.receiver"
+                + " WHERE m.chat.id = :chatId AND m.id > :since ORDER BY m.id ASC", Message.class)
+            .setParameter("chatId", chatId)
+            .setParameter("since", sinceMessageId)
+            .setMaxResults(limit + 1)
+            .getResultList());
+
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages.remove(messages.size() - 1);
+        }
+
+        return new Window(messages, hasMore);
+    }
+
+    // Сообщения по id из поискового индекса, в произвольном порядке
+    public List<Message> byIds(List<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        return entityManager
+            .createQuery("SELECT m FROM Message m JOIN FETCH m.chat WHERE m.id IN :ids", Message.class)
+            .setParameter("ids", messageIds)
+            .getResultList();
+    }
+
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,166 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.workswap.api.dto.ChatListDTO;
+import org.workswap.api.dto.ChatSummaryDTO;
+import org.workswap.common.dto.chat.MessageDTO;
+import org.workswap.datasource.central.model.User;
+import org.workswap.datasource.central.model.chat.Chat;
+import org.workswap.datasource.central.model.chat.Message;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+// Список чатов пользователя по последней активности: сначала выбираются id страницы,
+// потом чаты и последние сообщения — по одному запросу на всю страницу; непрочитанные берутся из счётчиков
+@Component
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class ChatListQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final UnreadCounters unreadCounters;
+    private final ChatMessageWriteBehind chatMessageWriteBehind;
+
+    // Запас ниже версии для досинхронизации: расхождение часов узлов плюс задержка отложенной записи
+    @Value("${chat.list.delta-window-ms:5000}")
+    private long deltaWindowMillis;
+
+    // Без отложенной записи id из AUTO_INCREMENT: вне порядка коммитятся только параллельные вставки
+    @Value("${chat.list.delta-window-ids:1000}")
+    private long deltaWindowIds;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Версия — id последнего сообщения. id упорядочены лишь примерно: у отложенной записи время в id
+    // берётся с часов узла, а запись видна только после сброса пачки, так что сообщение с меньшим id
+    // может появиться уже после того, как клиент запомнил версию; вставки с AUTO_INCREMENT тоже коммитятся
+    // не по порядку id. Поэтому досинхронизация берёт чаты с сообщениями новее версии минус окно;
+    // повторно пришедшие чаты клиент просто заменяет по id чата.
+    // Прочтения версию не меняют, поэтому ответ на запрос с версией несёт все ненулевые счётчики непрочитанных.
+    public ChatListDTO page(User user, int page, int size, Long sinceVersion) {
+        // Последнее сообщение ищется отдельно для каждого чата по индексу внешнего ключа chat_id
+        // (InnoDB хранит в нём и id), а не агрегацией всех сообщений всех чатов пользователя
+        String lastId = "(SELECT MAX(m.id) FROM Message m WHERE m.chat = p.chat)";
+        String jpql = "SELECT p.chat.id, " + lastId + " AS lastId FROM ChatParticipant p"
+            + " WHERE p.user.id = :userId"
+            + (sinceVersion != null ? " AND " + lastId + " > :since" : "")
+            + " ORDER BY lastId DESC NULLS LAST, p.chat.id DESC";
+
+        var query = entityManager.createQuery(jpql, Object[].class)
+                                 .setParameter("userId", user.getId())
+                                 .setFirstResult(page * size)
+                                 .setMaxResults(size + 1);
+        if (sinceVersion != null) {
+            query.setParameter("since", Math.max(0, sinceVersion - deltaWindow()));
+        }
+
+        List<Object[]> rows = new ArrayList<>(query.getResultList());
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+
+        List<Long> ids = rows.stream().map(row -> (Long) row[0]).toList();
+
+        // Первая строка — самое свежее сообщение; из-за окна оно может оказаться старше версии клиента
+        Long newest = rows.isEmpty() ? null : (Long) rows.get(0)[1];
+        Long version = sinceVersion;
+        if (newest != null && (version == null || newest > version)) {
+            version = newest;
+        }
+
+        Map<Long, Long> unread = unreadCounters.getAll(user.getId());
+        Map<Long, Long> unreadCounts = sinceVersion != null ? nonZero(unread) : null;
+
+        if (ids.isEmpty()) {
+            return new ChatListDTO(List.of(), page, false, version, unreadCounts);
+        }
+
+        Map<Long, Chat> chats = entityManager
+            .createQuery("SELECT c FROM Chat c WHERE c.id IN :ids", Chat.class)
+            .setParameter("ids", ids)
+            .getResultList()
+            .stream()
+            .collect(Collectors.toMap(Chat::getId, Function.identity()));
+
+        List<Long> lastIds = rows.stream().map(row -> (Long) row[1]).filter(Objects::nonNull).toList();
+        Map<Long, Message> lastMessages = lastIds.isEmpty() ? Map.of() : entityManager
+            .createQuery("SELECT m FROM Message m WHERE m.id IN :lastIds", Message.class)
+            .setParameter("lastIds", lastIds)
+            .getResultList()
+            .stream()
+            .collect(Collectors.toMap(m -> m.getChat().getId(), Function.identity()));
+
+        List<ChatSummaryDTO> summaries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Chat chat = chats.get(id);
+            if (chat == null) {
+                continue;
+            }
+            User interlocutor = chat.getInterlocutor(user);
+            Message last = lastMessages.get(id);
+
+            summaries.add(new ChatSummaryDTO(
+                id,
+                interlocutor != null ? interlocutor.getId() : null,
+                interlocutor != null ? interlocutor.getName() : null,
+                interlocutor != null ? interlocutor.getAvatarUrl() : null,
+                chat.isTemporary(),
+                last != null ? toMessageDTO(last, id, user) : null,
+                last != null ? last.getSentAt() : null,
+                unread.getOrDefault(id, 0L)
+            ));
+        }
+
+        return new ChatListDTO(summaries, page, hasMore, version, unreadCounts);
+    }
+
+    // У отложенной записи время — в старших битах id, окно переводится в них
+    private long deltaWindow() {
+        return chatMessageWriteBehind.isEnabled() ? deltaWindowMillis << ChatMessageWriteBehind.TIME_SHIFT : deltaWindowIds;
+    }
+
+    public static int normalizeSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private MessageDTO toMessageDTO(Message message, Long chatId, User user) {
+        return new MessageDTO(
+                message.getId(),
+                message.getText(),
+                message.getSentAt(),
+                message.getSender().getId(),
+                chatId,
+                message.getReceiver().getId(),
+                message.getSender().getId().equals(user.getId())
+        );
+    }
+
+    private static Map<Long, Long> nonZero(Map<Long, Long> counts) {
+        Map<Long, Long> result = new HashMap<>();
+        counts.forEach((chatId, count) -> {
+            if (count > 0) {
+                result.put(chatId, count);
+            }
+        });
+        return result;
+    }
+}
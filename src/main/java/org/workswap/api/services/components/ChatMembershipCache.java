@@ -0,0 +1,93 @@
+package org.workswap.api.services.components;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Участники чата не меняются после создания, поэтому проверка доступа к чату
+// для REST и STOMP идёт по закэшированным id без загрузки Chat и ChatParticipant
+@Component
+public class ChatMembershipCache {
+
+    private final Map<Long, long[]> participants;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChatMembershipCache(@Value("${chat.membership.max-chats:100000}") int maxChats) {
+        this.participants = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxChats;
+            }
+        };
+    }
+
+    public boolean isParticipant(Long chatId, Long userId) {
+        if (chatId == null || userId == null) {
+            return false;
+        }
+        for (long id : getParticipants(chatId)) {
+            if (id == userId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void checkParticipant(Long chatId, Long userId) {
+        if (!isParticipant(chatId, userId)) {
+            throw new AccessDeniedException("No access to this chat");
+        }
+    }
+
+    // Собеседник для участника чата; null, если пользователь не участник
+    public Long getInterlocutorId(Long chatId, Long userId) {
+        if (!isParticipant(chatId, userId)) {
+            return null;
+        }
+        for (long id : getParticipants(chatId)) {
+            if (id != userId) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    public void evict(Long chatId) {
+        synchronized (participants) {
+            participants.remove(chatId);
+        }
+    }
+
+    private long[] getParticipants(Long chatId) {
+        synchronized (participants) {
+            long[] cached = participants.get(chatId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Long> ids = entityManager
+            .createQuery("SELECT p.user.id FROM ChatParticipant p WHERE p.chat.id = :chatId", Long.class)
+            .setParameter("chatId", chatId)
+            .getResultList();
+
+        long[] loaded = ids.stream().mapToLong(Long::longValue).toArray();
+
+        // Несуществующий чат не кэшируем, чтобы не держать место под мусорные id
+        if (loaded.length > 0) {
+            synchronized (participants) {
+                participants.put(chatId, loaded);
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,278 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Обратный индекс по сообщениям, свой для каждого пользователя: терм -> id сообщений из его чатов.
+// Строится одним проходом по базе при первом поиске, дальше дополняется на каждой отправке.
+// Хранится ограниченное число пользователей, давно не искавшие вытесняются.
+@Component
+public class ChatMessageSearchIndex {
+
+    // Язык сообщения неизвестен: без стоп-слов, нормализация одинаковая для текста и запроса
+    private static final String LANG = "";
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+
+    private static final int SNIPPET_BEFORE = 40;
+    private static final int SNIPPET_LENGTH = 160;
+
+    private record PendingMessage(long id, Set<String> tokens) {}
+
+    private static final class UserIndex {
+        final ReentrantLock lock = new ReentrantLock();
+        final ReentrantLock loadLock = new ReentrantLock();
+        final NavigableMap<String, LongHashSet> postings = new TreeMap<>();
+        // Сообщения, пришедшие пока идёт загрузка, применяются после неё
+        volatile List<PendingMessage> pending = new ArrayList<>();
+        volatile long loadedAt = 0;
+        // Загрузка упала: индекс убран из кэша, ждавшие её поиски начинают заново
+        volatile boolean failed = false;
+    }
+
+    private final Map<Long, UserIndex> indexes;
+    private final long ttlMillis;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChatMessageSearchIndex(
+        @Value("${chat.search.max-users:2000}") int maxUsers,
+        @Value("${chat.search.ttl-seconds:1800}") long ttlSeconds
+    ) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    // Индексы есть только у тех, кто уже искал; остальным сообщение попадёт при загрузке
+    public void messageAdded(long messageId, String text, Long senderId, Long receiverId) {
+        UserIndex senderIndex;
+        UserIndex receiverIndex;
+        synchronized (indexes) {
+            senderIndex = indexes.get(senderId);
+            receiverIndex = receiverId.equals(senderId) ? null : indexes.get(receiverId);
+        }
+        // Большинство отправок никого из искавших не касается — текст тогда не разбираем
+        if (senderIndex == null && receiverIndex == null) {
+            return;
+        }
+
+        Set<String> tokens = SearchTokenizer.distinctTokens(text, LANG);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        add(senderIndex, messageId, tokens);
+        add(receiverIndex, messageId, tokens);
+    }
+
+    // id подходящих сообщений, сначала новые; каждое слово запроса должно совпасть (короткие — точно, длинные — по префиксу)
+    public List<Long> search(Long userId, String query, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(query, LANG);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        UserIndex index = load(userId);
+
+        long[] matched;
+        index.lock.lock();
+        try {
+            matched = match(index.postings, tokens);
+        } finally {
+            index.lock.unlock();
+        }
+
+        Arrays.sort(matched);
+        int count = Math.min(limit, matched.length);
+        List<Long> result = new ArrayList<>(count);
+        for (int i = matched.length - 1; i >= matched.length - count; i--) {
+            result.add(matched[i]);
+        }
+        return result;
+    }
+
+    // Фрагмент текста вокруг первого найденного слова запроса
+    public static String snippet(String text, String query) {
+        if (text == null || text.length() <= SNIPPET_LENGTH) {
+            return text;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int position = -1;
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                int found = lower.indexOf(word);
+                if (found >= 0 && (position < 0 || found < position)) {
+                    position = found;
+                }
+            }
+        }
+
+        int start = Math.max(0, Math.min(position - SNIPPET_BEFORE, text.length() - SNIPPET_LENGTH));
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        return (start > 0 ? "…" : "") + text.substring(start, end).strip() + (end < text.length() ? "…" : "");
+    }
+
+    public void evict(Long userId) {
+        synchronized (indexes) {
+            indexes.remove(userId);
+        }
+    }
+
+    public int size() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    private void add(UserIndex index, long messageId, Set<String> tokens) {
+        if (index == null) {
+            return;
+        }
+
+        index.lock.lock();
+        try {
+            if (index.pending != null) {
+                index.pending.add(new PendingMessage(messageId, tokens));
+                return;
+            }
+            addTokens(index.postings, messageId, tokens);
+        } finally {
+            index.lock.unlock();
+        }
+    }
+
+    private UserIndex load(Long userId) {
+        UserIndex index;
+        synchronized (indexes) {
+            index = indexes.get(userId);
+            // Время жизни подбирает сообщения, записанные другими узлами
+            if (index == null || (index.pending == null && System.currentTimeMillis() - index.loadedAt > ttlMillis)) {
+                index = new UserIndex();
+                indexes.put(userId, index);
+            }
+        }
+
+        // Запрос в базу идёт под блокировкой загрузки: параллельные поиски того же пользователя ждут её, а не повторяют
+        index.loadLock.lock();
+        try {
+            if (index.failed) {
+                return load(userId);
+            }
+            if (index.pending != null) {
+                fill(index, userId);
+            }
+        } catch (RuntimeException e) {
+            // Недостроенный индекс не оставляем: иначе он копил бы pending и никогда не загрузился
+            index.failed = true;
+            synchronized (indexes) {
+                indexes.remove(userId, index);
+            }
+            throw e;
+        } finally {
+            index.loadLock.unlock();
+        }
+        return index;
+    }
+
+    private void fill(UserIndex index, Long userId) {
+        NavigableMap<String, LongHashSet> built = new TreeMap<>();
+        long after = 0;
+
+        // Сообщения чатов пользователя — это ровно те, где он отправитель или получатель
+        while (true) {
+            List<Object[]> rows = loadPage(userId, after, LOAD_PAGE_SIZE);
+
+            for (Object[] row : rows) {
+                long messageId = (Long) row[0];
+                addTokens(built, messageId, SearchTokenizer.distinctTokens((String) row[1], LANG));
+                after = messageId;
+            }
+
+            if (rows.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        index.lock.lock();
+        try {
+            index.postings.putAll(built);
+            for (PendingMessage message : index.pending) {
+                addTokens(index.postings, message.id(), message.tokens());
+            }
+            index.pending = null;
+            index.loadedAt = System.currentTimeMillis();
+        } finally {
+            index.lock.unlock();
+        }
+    }
+
+    List<Object[]> loadPage(Long userId, long after, int limit) {
+        return entityManager
+            .createQuery("SELECT m.id, m.text FROM Message m"
+                + " WHERE (m.sender.id = :userId OR m.receiver.id = :userId) AND m.id > :after"
+                + " ORDER BY m.id ASC", Object[].class)
+            .setParameter("userId", userId)
+            .setParameter("after", after)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    private static void addTokens(NavigableMap<String, LongHashSet> postings, long messageId, Set<String> tokens) {
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new LongHashSet()).add(messageId);
+        }
+    }
+
+    private static long[] match(NavigableMap<String, LongHashSet> postings, List<String> tokens) {
+        LongHashSet matched = null;
+
+        for (String token : tokens) {
+            // Короткие токены только точно, иначе по префиксу: пользователь может не дописать слово
+            Collection<LongHashSet> terms;
+            if (token.length() >= SearchTokenizer.MIN_PREFIX_LENGTH) {
+                terms = postings.subMap(token, true, token + Character.MAX_VALUE, false).values();
+            } else {
+                LongHashSet exact = postings.get(token);
+                terms = exact == null ? List.of() : List.of(exact);
+            }
+
+            // Пересечение сразу при обходе: дальше держим только то, что совпало со всеми предыдущими словами
+            LongHashSet ids = new LongHashSet();
+            for (LongHashSet termIds : terms) {
+                for (long id : termIds.toArray()) {
+                    if (matched == null || matched.contains(id)) {
+                        ids.add(id);
+                    }
+                }
+            }
+
+            matched = ids;
+            if (matched.size() == 0) {
+                break;
+            }
+        }
+
+        return matched == null ? new long[0] : matched.toArray();
+    }
+}
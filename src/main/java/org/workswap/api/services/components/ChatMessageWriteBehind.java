@@ -0,0 +1,450 @@
+package org.workswap.api.services.components;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.workswap.datasource.central.model.chat.Message;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Отложенная пакетная запись сообщений чата.
+// id выдаётся в памяти сразу, сообщение рассылается до записи в базу, а один поток-писатель
+// сохраняет очередь пачками JDBC batch. Очередь FIFO и один писатель — порядок внутри чата сохраняется.
+// Пачка с плохой строкой не блокирует очередь: после нескольких попыток пишем по одной строке,
+// а строки, которые база так и не приняла, уходят в журнал chat.write-behind.dead-letter.
+@Component
+public class ChatMessageWriteBehind implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriteBehind.class);
+    private static final Logger deadLetter = LoggerFactory.getLogger("chat.write-behind.dead-letter");
+
+    // Раскладка id: время в мс от EPOCH | номер узла | номер в пределах миллисекунды.
+    // 40 + 5 + 8 = 53 бита: id остаётся точным числом в JavaScript.
+    // Время в старших битах делает id возрастающими по всему кластеру с точностью до расхождения часов узлов.
+    // При включённой отложенной записи все вставки сообщений (и синхронная insertNow) берут id отсюда:
+    // AUTO_INCREMENT после явных id встаёт на MAX(id)+1 и попал бы в диапазон, уже выданный генератором.
+    static final long EPOCH_MILLIS = 1767225600000L; // 2026-01-01T00:00:00Z
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 8;
+    static final int MAX_NODES = 1 << NODE_BITS;
+    static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    // Поля сущности, которые заполняет вставка; остальные обязательные столбцы должны иметь значение по умолчанию
+    private static final List<String> WRITTEN_PROPERTIES = List.of("chat", "sender", "receiver", "text", "sentAt", "read");
+
+    public record PendingMessage(
+        long id,
+        Long chatId,
+        Long senderId,
+        Long receiverId,
+        String text,
+        LocalDateTime sentAt,
+        LongConsumer afterPersist
+    ) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final int nodeIndex;
+
+    private final BlockingQueue<PendingMessage> queue;
+    private final ReentrantLock submitLock = new ReentrantLock();
+
+    // Состояние генератора id, меняется только под submitLock
+    private long lastMillis = 0;
+    private long lastSequence = 0;
+
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    // Обработка после записи (уведомления, счётчики, индексы) не должна ограничивать скорость писателя
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile String insertSql;
+    private volatile boolean running = false;
+    private Thread writer;
+
+    public ChatMessageWriteBehind(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        EntityManagerFactory entityManagerFactory,
+        @Value("${chat.write-behind.enabled:false}") boolean enabled,
+        @Value("${chat.write-behind.queue-capacity:10000}") int queueCapacity,
+        @Value("${chat.write-behind.batch-size:200}") int batchSize,
+        @Value("${chat.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+        @Value("${chat.write-behind.offer-timeout-ms:500}") long offerTimeoutMillis,
+        @Value("${chat.write-behind.max-attempts:3}") int maxAttempts,
+        @Value("${chat.write-behind.node-index:0}") int nodeIndex
+    ) {
+        if (nodeIndex < 0 || nodeIndex >= MAX_NODES) {
+            throw new IllegalArgumentException("chat.write-behind.node-index должен быть от 0 до " + (MAX_NODES - 1));
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.nodeIndex = nodeIndex;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Выдаёт id и ставит сообщение в очередь; при переполненной очереди вызывающий поток ждёт (backpressure).
+    // Блокировка держит порядок id равным порядку в очереди; ReentrantLock, а не synchronized,
+    // чтобы ожидание места в очереди не закрепляло виртуальный поток за несущим
+    public PendingMessage submit(Long chatId, Long senderId, Long receiverId, String text, LongConsumer afterPersist) {
+        submitLock.lock();
+        try {
+            PendingMessage message = new PendingMessage(
+                nextId(), chatId, senderId, receiverId, text, LocalDateTime.now(), afterPersist);
+
+            if (!queue.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessageDeliveryException("Очередь записи сообщений переполнена");
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageDeliveryException("Запись сообщения прервана");
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    // Синхронная запись в обход очереди (первое сообщение временного чата) с id из того же генератора.
+    // Ошибка записи уходит вызывающему, как при обычном сохранении через ChatService
+    public PendingMessage insertNow(Long chatId, Long senderId, Long receiverId, String text) {
+        PendingMessage message;
+        submitLock.lock();
+        try {
+            message = new PendingMessage(nextId(), chatId, senderId, receiverId, text, LocalDateTime.now(), id -> {});
+        } finally {
+            submitLock.unlock();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> insert(List.of(message)));
+        persisted.incrementAndGet();
+        return message;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "queueDepth", queue.size(),
+            "persisted", persisted.get(),
+            "deadLettered", deadLettered.get()
+        );
+    }
+
+    // Вызывается под submitLock. Часы, ушедшие назад, не уменьшают id: продолжаем с последней миллисекунды
+    long nextId() {
+        long now = Math.max(System.currentTimeMillis() - EPOCH_MILLIS, lastMillis);
+        if (now == lastMillis) {
+            if (lastSequence == MAX_SEQUENCE) {
+                // Номера миллисекунды кончились — занимаем следующую
+                now++;
+                lastSequence = 0;
+            } else {
+                lastSequence++;
+            }
+        } else {
+            lastSequence = 0;
+        }
+        lastMillis = now;
+        return (now << TIME_SHIFT) | ((long) nodeIndex << SEQUENCE_BITS) | lastSequence;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        insertSql = resolveInsertSql();
+
+        // Если в базе уже есть id новее часов этого узла, продолжаем после них
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tableName(), Long.class);
+        submitLock.lock();
+        try {
+            lastMillis = (maxId == null ? 0 : maxId) >>> TIME_SHIFT;
+            lastSequence = MAX_SEQUENCE;
+        } finally {
+            submitLock.unlock();
+        }
+
+        running = true;
+        writer = Thread.ofPlatform().name("chat-write-behind").daemon(false).start(this::writeLoop);
+        logger.info("Отложенная запись сообщений включена, узел {}", nodeIndex);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Дописываем то, что осталось в очереди
+        List<PendingMessage> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            logger.info("Дописываем {} сообщений перед остановкой", rest.size());
+            persist(rest);
+        }
+
+        callbackExecutor.shutdown();
+        try {
+            if (!callbackExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Обработка после записи не завершилась за 10 секунд");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Останавливаемся раньше брокера сообщений и позже пула соединений
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1000;
+    }
+
+    private void writeLoop() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                PendingMessage first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                persist(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Уже собранную пачку дописываем сразу, остаток очереди допишет stop()
+                if (!batch.isEmpty()) {
+                    persist(batch);
+                    batch.clear();
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void persist(List<PendingMessage> batch) {
+        if (insertWithRetry(batch)) {
+            afterPersist(batch);
+            return;
+        }
+
+        // Пачка не проходит из-за данных: пишем по одной строке, чтобы плохая строка не держала остальные
+        logger.warn("Пачка из {} сообщений не записывается, пишем по одной", batch.size());
+        List<PendingMessage> written = new ArrayList<>(batch.size());
+        for (PendingMessage message : batch) {
+            if (insertWithRetry(List.of(message))) {
+                written.add(message);
+            } else {
+                deadLetter(message);
+            }
+        }
+        afterPersist(written);
+    }
+
+    // Ошибки данных (ограничения, длина, внешний ключ) повторяем ограниченное число раз.
+    // Недоступность базы повторяем, пока она не вернётся: выбрасывать сообщения из-за неё нельзя.
+    private boolean insertWithRetry(List<PendingMessage> batch) {
+        long backoff = 100;
+        int attempts = 0;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(batch));
+                    return true;
+                } catch (Exception e) {
+                    boolean unavailable = isUnavailable(e);
+                    if (!unavailable && ++attempts >= maxAttempts) {
+                        logger.debug("Запись {} сообщений не удалась после {} попыток: {}", batch.size(), attempts, e.getMessage());
+                        return false;
+                    }
+                    logger.error("Не удалось записать {} сообщений, повтор через {} мс: {}", batch.size(), backoff, e.getMessage());
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                    backoff = Math.min(backoff * 2, 5000);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Только отказ соединения или временная блокировка; нарушение ограничения, в какую бы обёртку
+    // транзакции оно ни попало, — ошибка данных и уходит в dead-letter после maxAttempts
+    static boolean isUnavailable(Throwable e) {
+        if (e instanceof TransientDataAccessException
+            || e instanceof RecoverableDataAccessException
+            || e instanceof DataAccessResourceFailureException
+            || e instanceof CannotCreateTransactionException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException
+                || cause instanceof SQLNonTransientConnectionException
+                || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void deadLetter(PendingMessage message) {
+        deadLettered.incrementAndGet();
+        deadLetter.error("id={} chatId={} senderId={} receiverId={} sentAt={} text={}",
+            message.id(), message.chatId(), message.senderId(), message.receiverId(), message.sentAt(), message.text());
+    }
+
+    private void afterPersist(List<PendingMessage> messages) {
+        persisted.addAndGet(messages.size());
+        for (PendingMessage message : messages) {
+            callbackExecutor.execute(() -> {
+                try {
+                    message.afterPersist().accept(message.id());
+                } catch (Exception e) {
+                    logger.warn("Ошибка обработки после записи сообщения {}: {}", message.id(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        jdbcTemplate.batchUpdate(insertSql, batch, batch.size(), (statement, message) -> {
+            statement.setLong(1, message.id());
+            statement.setLong(2, message.chatId());
+            statement.setLong(3, message.senderId());
+            statement.setLong(4, message.receiverId());
+            statement.setString(5, message.text());
+            statement.setTimestamp(6, Timestamp.valueOf(message.sentAt()));
+            statement.setBoolean(7, false);
+        });
+    }
+
+    private AbstractEntityPersister persister() {
+        return (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                                                             .getMappingMetamodel()
+                                                             .getEntityDescriptor(Message.class);
+    }
+
+    String tableName() {
+        return persister().getTableName();
+    }
+
+    // Имена таблицы и столбцов берём из отображения сущности в ядре, а не пишем руками.
+    // Обязательный столбец, который вставка не заполняет и у которого нет значения по умолчанию,
+    // останавливает запуск: иначе каждая пачка падала бы на нём.
+    String resolveInsertSql() {
+        AbstractEntityPersister persister = persister();
+        String table = persister.getTableName();
+
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", persister.getIdentifierColumnNames()[0]);
+        for (String property : WRITTEN_PROPERTIES) {
+            columns.put(property, persister.getPropertyColumnNames(property)[0]);
+        }
+
+        Set<String> written = Set.copyOf(columns.values().stream().map(this::bareName).toList());
+        List<String> missing = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            List<String> result = new ArrayList<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, bareName(table), null)) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    boolean required = "NO".equals(rs.getString("IS_NULLABLE"));
+                    boolean hasDefault = rs.getString("COLUMN_DEF") != null || "YES".equals(rs.getString("IS_AUTOINCREMENT"));
+                    if (required && !hasDefault && !written.contains(column.toLowerCase())) {
+                        result.add(column);
+                    }
+                }
+            }
+            return result;
+        });
+        if (missing != null && !missing.isEmpty()) {
+            throw new IllegalStateException("Отложенная запись не заполняет обязательные столбцы " + table + ": " + missing);
+        }
+
+        return "INSERT INTO " + table + " (" + String.join(", ", columns.values()) + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    private String bareName(String name) {
+        return name.replace("`", "").replace("\"", "").toLowerCase();
+    }
+}
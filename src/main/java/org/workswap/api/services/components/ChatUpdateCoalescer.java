@@ -0,0 +1,175 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.workswap.api.dto.ChatDeltaDTO;
+import org.workswap.common.dto.chat.MessageDTO;
+import org.workswap.core.services.ChatService;
+import org.workswap.datasource.central.model.User;
+import org.workswap.datasource.central.model.chat.Message;
+
+import jakarta.annotation.PreDestroy;
+
+// Собирает обновления списка чатов по пользователю и раз в окно отправляет одним кадром
+// только изменившиеся поля: последнее сообщение и число непрочитанных
+@Component
+public class ChatUpdateCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatUpdateCoalescer.class);
+
+    public static final String DELTA_DESTINATION = "/queue/chats.delta";
+
+    public enum Field {
+        LAST_MESSAGE,
+        UNREAD_COUNT
+    }
+
+    private record Recipient(Long userId, String email) {}
+
+    private final ChatService chatService;
+    private final ChatHistoryQuery chatHistoryQuery;
+    private final UnreadCounters unreadCounters;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final boolean enabled;
+
+    // получатель -> id чата -> изменившиеся поля
+    private final Coalescer<Recipient, Map<Long, Set<Field>>> pending = new Coalescer<>(ChatUpdateCoalescer::merge);
+
+    // Запросы к базе идут в своём потоке, а не в общем потоке @Scheduled: медленная база не задерживает другие задачи.
+    // Пока предыдущая отправка не закончилась, новая не начинается — обновления продолжают сливаться
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("chat-updates-flush").daemon(true).factory());
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    public ChatUpdateCoalescer(
+        ChatService chatService,
+        ChatHistoryQuery chatHistoryQuery,
+        UnreadCounters unreadCounters,
+        SimpMessagingTemplate messagingTemplate,
+        @Value("${chat.updates.coalesce.enabled:false}") boolean enabled
+    ) {
+        this.chatService = chatService;
+        this.chatHistoryQuery = chatHistoryQuery;
+        this.unreadCounters = unreadCounters;
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+    }
+
+    public void messageAdded(Long chatId, User user, Locale locale) {
+        changed(chatId, user, locale, EnumSet.of(Field.LAST_MESSAGE, Field.UNREAD_COUNT));
+    }
+
+    public void readStateChanged(Long chatId, User user, Locale locale) {
+        changed(chatId, user, locale, EnumSet.of(Field.UNREAD_COUNT));
+    }
+
+    // Когда клиент ещё не знает о чате (например, он только стал постоянным), нужен полный ChatDTO
+    public void chatCreated(Long chatId, User user, Locale locale) {
+        chatService.notifyChatUpdate(chatId, user, locale);
+    }
+
+    private void changed(Long chatId, User user, Locale locale, Set<Field> fields) {
+        if (!enabled) {
+            chatService.notifyChatUpdate(chatId, user, locale);
+            return;
+        }
+
+        Map<Long, Set<Field>> update = new HashMap<>();
+        update.put(chatId, EnumSet.copyOf(fields));
+        pending.submit(new Recipient(user.getId(), user.getEmail()), update);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.updates.coalesce.window-ms:300}")
+    public void flush() {
+        if (!enabled || pending.size() == 0 || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+
+        flushExecutor.execute(() -> {
+            try {
+                send();
+            } finally {
+                flushing.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+    }
+
+    private void send() {
+        Map<Recipient, Map<Long, Set<Field>>> drained = pending.drain();
+
+        // Последнее сообщение чата общее для обоих участников, читаем его один раз за окно
+        Map<Long, Optional<Message>> lastMessages = new HashMap<>();
+
+        drained.forEach((recipient, chats) -> {
+            try {
+                List<ChatDeltaDTO> deltas = new ArrayList<>(chats.size());
+                chats.forEach((chatId, fields) -> deltas.add(toDelta(recipient, chatId, fields, lastMessages)));
+
+                messagingTemplate.convertAndSendToUser(recipient.email(), DELTA_DESTINATION, deltas);
+            } catch (Exception e) {
+                logger.warn("Не удалось отправить обновления чатов пользователю {}: {}", recipient.email(), e.getMessage());
+            }
+        });
+
+        logger.debug("Отправлены обновления чатов для {} пользователей", drained.size());
+    }
+
+    private ChatDeltaDTO toDelta(Recipient recipient, Long chatId, Set<Field> fields, Map<Long, Optional<Message>> lastMessages) {
+        ChatDeltaDTO delta = new ChatDeltaDTO(chatId);
+
+        if (fields.contains(Field.LAST_MESSAGE)) {
+            lastMessages.computeIfAbsent(chatId, id -> chatHistoryQuery.before(id, null, 1).messages().stream().findFirst())
+                        .ifPresent(message -> delta.setLastMessage(toMessageDTO(message, chatId, recipient.userId())));
+        }
+
+        if (fields.contains(Field.UNREAD_COUNT)) {
+            delta.setUnreadCount(unreadCounters.get(recipient.userId(), chatId));
+        }
+
+        return delta;
+    }
+
+    private MessageDTO toMessageDTO(Message message, Long chatId, Long userId) {
+        return new MessageDTO(
+                message.getId(),
+                message.getText(),
+                message.getSentAt(),
+                message.getSender().getId(),
+                chatId,
+                message.getReceiver().getId(),
+                message.getSender().getId().equals(userId)
+        );
+    }
+
+    private static Map<Long, Set<Field>> merge(Map<Long, Set<Field>> current, Map<Long, Set<Field>> update) {
+        Map<Long, Set<Field>> merged = new HashMap<>(current);
+        update.forEach((chatId, fields) -> merged.merge(chatId, fields, (a, b) -> {
+            Set<Field> union = EnumSet.copyOf(a);
+            union.addAll(b);
+            return union;
+        }));
+        return merged;
+    }
+}
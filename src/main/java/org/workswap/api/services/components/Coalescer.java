@@ -0,0 +1,36 @@
+package org.workswap.api.services.components;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+
+// Копит обновления по ключу, сливая повторные в одно; владелец периодически забирает всё накопленное
+public class Coalescer<K, V> {
+
+    private final Map<K, V> pending = new ConcurrentHashMap<>();
+    private final BinaryOperator<V> merge;
+
+    public Coalescer(BinaryOperator<V> merge) {
+        this.merge = merge;
+    }
+
+    public void submit(K key, V value) {
+        pending.merge(key, value, merge);
+    }
+
+    public Map<K, V> drain() {
+        Map<K, V> drained = new LinkedHashMap<>();
+        for (K key : pending.keySet()) {
+            V value = pending.remove(key);
+            if (value != null) {
+                drained.put(key, value);
+            }
+        }
+        return drained;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+}
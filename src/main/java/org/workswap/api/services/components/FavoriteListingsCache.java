@@ -0,0 +1,139 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Множество id избранных объявлений на пользователя, чтобы не проверять избранное запросом на каждую карточку.
+// Изменения с этого узла применяются сразу, с других — через CacheInvalidationBus; время жизни страхует от потерянной инвалидации.
+@Component
+public class FavoriteListingsCache {
+
+    private static final String CACHE_NAME = "favorites";
+
+    private record Entry(LongHashSet ids, long loadedAt) {}
+
+    private final CacheInvalidationBus invalidationBus;
+    private final long ttlMillis;
+    private final Map<Long, Entry> favorites;
+
+    // Растёт при каждом изменении, чтобы не сохранить множество, загруженное до этого изменения
+    private long generation = 0;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public FavoriteListingsCache(
+        CacheInvalidationBus invalidationBus,
+        @Value("${favorites.cache.max-users:50000}") int maxUsers,
+        @Value("${favorites.cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.invalidationBus = invalidationBus;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.favorites = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+        invalidationBus.subscribe(CACHE_NAME, userId -> evictLocal(userId));
+    }
+
+    public boolean isFavorite(Long userId, Long listingId) {
+        LongHashSet set = getSet(userId);
+        synchronized (set) {
+            return set.contains(listingId);
+        }
+    }
+
+    // Возвращает только те id из переданных, что в избранном у пользователя, в исходном порядке
+    public List<Long> filterFavorites(Long userId, Collection<Long> listingIds) {
+        LongHashSet set = getSet(userId);
+        List<Long> result = new ArrayList<>();
+        synchronized (set) {
+            for (Long id : listingIds) {
+                if (set.contains(id)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Вызывается после ListingCommandService.toggleFavorite с уже известным итоговым состоянием:
+    // установка, а не переключение, поэтому повтор или гонка с загрузкой не инвертирует его
+    public void setFavorite(Long userId, Long listingId, boolean favorite) {
+        Entry entry;
+        synchronized (favorites) {
+            generation++;
+            entry = favorites.get(userId);
+        }
+        if (entry != null) {
+            synchronized (entry.ids()) {
+                if (favorite) {
+                    entry.ids().add(listingId);
+                } else {
+                    entry.ids().remove(listingId);
+                }
+            }
+        }
+        invalidationBus.publish(CACHE_NAME, userId);
+    }
+
+    public void evict(Long userId) {
+        evictLocal(userId);
+        invalidationBus.publish(CACHE_NAME, userId);
+    }
+
+    private void evictLocal(long userId) {
+        synchronized (favorites) {
+            generation++;
+            favorites.remove(userId);
+        }
+    }
+
+    private LongHashSet getSet(Long userId) {
+        long loadedGeneration;
+        synchronized (favorites) {
+            Entry cached = favorites.get(userId);
+            if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlMillis) {
+                return cached.ids();
+            }
+            loadedGeneration = generation;
+        }
+
+        // Загружаем вне блокировки: один запрос id избранного пользователя
+        List<Long> ids = loadIds(userId);
+
+        LongHashSet loaded = new LongHashSet(ids.size());
+        ids.forEach(loaded::add);
+
+        synchronized (favorites) {
+            // Изменение во время загрузки: база могла вернуть состояние до него, такой результат не кэшируем
+            if (loadedGeneration != generation) {
+                return loaded;
+            }
+            Entry current = favorites.get(userId);
+            if (current != null && System.currentTimeMillis() - current.loadedAt() < ttlMillis) {
+                return current.ids();
+            }
+            favorites.put(userId, new Entry(loaded, System.currentTimeMillis()));
+            return loaded;
+        }
+    }
+
+    List<Long> loadIds(Long userId) {
+        return entityManager
+            .createQuery("SELECT l.id FROM User u JOIN u.favoriteListings l WHERE u.id = :userId", Long.class)
+            .setParameter("userId", userId)
+            .getResultList();
+    }
+}
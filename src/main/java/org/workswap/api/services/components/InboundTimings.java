@@ -0,0 +1,85 @@
+package org.workswap.api.services.components;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+// Пропускная способность и время обработки входящих STOMP-кадров, чтобы сравнивать
+// режимы исполнения (пул платформенных потоков и виртуальные потоки) на одной и той же нагрузке
+@Component
+public class InboundTimings implements ExecutorChannelInterceptor {
+
+    // beforeHandle и afterMessageHandled выполняются в одном потоке обработчика
+    private final ThreadLocal<Long> started = new ThreadLocal<>();
+
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder inFlight = new LongAdder();
+
+    private volatile long resetAt = System.currentTimeMillis();
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            started.set(System.nanoTime());
+            inFlight.increment();
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Long start = started.get();
+        if (start == null) {
+            return;
+        }
+        started.remove();
+        inFlight.decrement();
+
+        long elapsed = System.nanoTime() - start;
+        handled.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulate(elapsed);
+        if (ex != null) {
+            failed.increment();
+        }
+    }
+
+    // Сброс перед новым замером
+    public void reset() {
+        handled.reset();
+        failed.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        resetAt = System.currentTimeMillis();
+    }
+
+    public Map<String, Object> getStats() {
+        long count = handled.sum();
+        double seconds = Math.max(1, System.currentTimeMillis() - resetAt) / 1000.0;
+
+        return Map.of(
+            "virtualThreads", virtualThreads,
+            "handled", count,
+            "failed", failed.sum(),
+            "inFlight", inFlight.sum(),
+            "perSecond", count / seconds,
+            "avgMillis", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count,
+            "maxMillis", maxNanos.get() / 1_000_000.0
+        );
+    }
+}
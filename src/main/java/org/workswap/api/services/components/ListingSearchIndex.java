@@ -0,0 +1,204 @@
+package org.workswap.api.services.components;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.workswap.api.events.ListingChangedEvent;
+import org.workswap.common.dto.listing.ListingTranslationDTO;
+import org.workswap.core.services.query.ListingQueryService;
+import org.workswap.datasource.central.model.Listing;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+// Обратный индекс по заголовкам и описаниям опубликованных объявлений, отдельный для каждого языка
+@Component
+@RequiredArgsConstructor
+public class ListingSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingSearchIndex.class);
+
+    private final ListingQueryService listingQueryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // язык -> терм -> id объявлений; отсортированная карта нужна для поиска по префиксу
+    private final Map<String, NavigableMap<String, Set<Long>>> postings = new ConcurrentHashMap<>();
+
+    // id объявления -> язык -> термы, чтобы при обновлении убрать старые термы
+    private final Map<Long, Map<String, Set<String>>> indexedTerms = new ConcurrentHashMap<>();
+
+    // id объявления -> номер последнего изменения; термы, прочитанные до более нового изменения, не применяются
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("listing-search-index").start(this::rebuild);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+
+        List<Long> ids = entityManager
+            .createQuery("SELECT l.id FROM Listing l WHERE " + CatalogVisibility.PREDICATE, Long.class)
+            .getResultList();
+
+        for (Long id : ids) {
+            try {
+                index(id, versions.getOrDefault(id, 0L));
+            } catch (Exception e) {
+                logger.warn("Не удалось проиндексировать объявление {}: {}", id, e.getMessage());
+            }
+        }
+
+        ready = true;
+        logger.info("Поисковый индекс каталога построен: {} объявлений за {} мс", ids.size(), System.currentTimeMillis() - start);
+    }
+
+    @Order(0)
+    @EventListener
+    public void onListingChanged(ListingChangedEvent event) {
+        Long listingId = event.listingId();
+        // Перестройка, прочитавшая объявление до этого изменения, уже не перезапишет его термы
+        long version = versions.merge(listingId, 1L, Long::sum);
+
+        if (event.type() == ListingChangedEvent.Type.DELETED) {
+            remove(listingId, version);
+            return;
+        }
+
+        Listing listing = listingQueryService.findListing(listingId.toString());
+        if (!CatalogVisibility.isVisible(listing)) {
+            remove(listingId, version);
+        } else {
+            index(listingId, version);
+        }
+    }
+
+    // Поиск по переводам на всех языках, как и LIKE по переводам в базе: объявление без перевода
+    // на язык запроса тоже находится. Слова запроса должны совпасть в одном переводе; запрос
+    // нормализуется правилами языка каждого перевода.
+    // null — в запросе нет ни одного индексируемого терма, индекс тут не поможет
+    public Set<Long> search(String query, String lang) {
+        if (SearchTokenizer.tokenize(query, lang).isEmpty()) {
+            return null;
+        }
+
+        Set<Long> matched = new HashSet<>();
+        postings.forEach((locale, terms) -> {
+            List<String> tokens = SearchTokenizer.tokenize(query, locale);
+            if (!tokens.isEmpty()) {
+                matched.addAll(searchLocale(terms, tokens));
+            }
+        });
+        return matched;
+    }
+
+    private Set<Long> searchLocale(NavigableMap<String, Set<Long>> terms, List<String> tokens) {
+        Set<Long> matched = null;
+
+        for (String token : tokens) {
+            Set<Long> ids = new HashSet<>();
+
+            // Короткие токены только точно, иначе по префиксу: пользователь ещё дописывает слово
+            if (token.length() >= SearchTokenizer.MIN_PREFIX_LENGTH) {
+                terms.subMap(token, true, token + Character.MAX_VALUE, false)
+                     .values()
+                     .forEach(ids::addAll);
+            } else {
+                ids.addAll(terms.getOrDefault(token, Set.of()));
+            }
+
+            if (matched == null) {
+                matched = ids;
+            } else {
+                matched.retainAll(ids);
+            }
+
+            if (matched.isEmpty()) {
+                break;
+            }
+        }
+
+        return matched == null ? Set.of() : matched;
+    }
+
+    private void index(Long listingId, long version) {
+        Map<String, ListingTranslationDTO> translations = listingQueryService.getTranslations(listingId);
+
+        Map<String, Set<String>> terms = new HashMap<>();
+        translations.forEach((lang, translation) -> {
+            Set<String> tokens = SearchTokenizer.distinctTokens(translation.getTitle(), lang);
+            tokens.addAll(SearchTokenizer.distinctTokens(translation.getDescription(), lang));
+            terms.put(lang, tokens);
+        });
+
+        apply(listingId, terms, version);
+    }
+
+    private synchronized void apply(Long listingId, Map<String, Set<String>> terms, long version) {
+        if (versions.getOrDefault(listingId, 0L) != version) {
+            return;
+        }
+        removeTerms(listingId);
+
+        terms.forEach((lang, tokens) -> {
+            NavigableMap<String, Set<Long>> localePostings = postings.computeIfAbsent(lang, l -> new ConcurrentSkipListMap<>());
+            for (String token : tokens) {
+                localePostings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(listingId);
+            }
+        });
+
+        indexedTerms.put(listingId, terms);
+    }
+
+    private synchronized void remove(Long listingId, long version) {
+        if (versions.getOrDefault(listingId, 0L) != version) {
+            return;
+        }
+        removeTerms(listingId);
+    }
+
+    private void removeTerms(Long listingId) {
+        Map<String, Set<String>> previous = indexedTerms.remove(listingId);
+        if (previous == null) {
+            return;
+        }
+
+        previous.forEach((lang, tokens) -> {
+            NavigableMap<String, Set<Long>> localePostings = postings.get(lang);
+            if (localePostings == null) {
+                return;
+            }
+            for (String token : tokens) {
+                Set<Long> ids = localePostings.get(token);
+                if (ids != null) {
+                    ids.remove(listingId);
+                    if (ids.isEmpty()) {
+                        localePostings.remove(token, ids);
+                    }
+                }
+            }
+        });
+    }
+}
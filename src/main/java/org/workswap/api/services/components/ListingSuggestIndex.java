@@ -0,0 +1,352 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.workswap.api.events.ListingChangedEvent;
+import org.workswap.common.dto.listing.ListingTranslationDTO;
+import org.workswap.core.services.CategoryService;
+import org.workswap.core.services.query.ListingQueryService;
+import org.workswap.datasource.central.model.Listing;
+import org.workswap.datasource.central.model.listingModels.Category;
+import org.workswap.datasource.central.repository.CategoryRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+// Подсказки по префиксу: отсортированный массив ключей на каждый язык и бинарный поиск по нему.
+// Ключ — заголовок объявления или название категории, начиная с каждого слова.
+@Component
+@RequiredArgsConstructor
+public class ListingSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingSuggestIndex.class);
+
+    private static final List<String> LOCALES = List.of("ru", "en", "fi", "it");
+
+    // Для префиксов до этой длины лучшие цели считаются при перестройке: их диапазоны ключей самые длинные
+    private static final int SHORT_PREFIX = 2;
+
+    // Сколько лучших целей хранится на короткий префикс; больше контроллер не запрашивает
+    private static final int MAX_LIMIT = 50;
+
+    private static final long REBUILD_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    public enum Type {
+        LISTING,
+        CATEGORY
+    }
+
+    public record Suggestion(Type type, Long id, String text) {}
+
+    // Неизменяемый снимок индекса одного языка, подменяется целиком при перестройке
+    private record Snapshot(
+        String[] keys,
+        int[] keyTargets,
+        Type[] types,
+        long[] ids,
+        String[] texts,
+        long[] scores,
+        // короткий префикс -> цели по убыванию популярности, не больше MAX_LIMIT
+        Map<String, int[]> shortPrefixTop
+    ) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new int[0], new Type[0], new long[0], new String[0], new long[0], Map.of());
+    }
+
+    private record Target(Type type, long id, String text, long score) {}
+
+    private final ListingQueryService listingQueryService;
+    private final CategoryService categoryService;
+    private final CategoryRepository categoryRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // id объявления -> язык -> заголовок
+    private final Map<Long, Map<String, String>> titles = new ConcurrentHashMap<>();
+
+    // id объявления -> номер последнего изменения; заголовки, прочитанные до более нового изменения, не применяются
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Snapshot> snapshots = Map.of();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile boolean dirty = false;
+    private volatile long lastBuild = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("listing-suggest-index").start(() -> {
+            List<Long> ids = entityManager
+                .createQuery("SELECT l.id FROM Listing l WHERE " + CatalogVisibility.PREDICATE, Long.class)
+                .getResultList();
+
+            for (Long id : ids) {
+                try {
+                    // Объявление, изменённое за время загрузки, уже обработал onListingChanged;
+                    // снятое или удалённое после чтения не вернётся: версия 0 уже не совпадёт
+                    if (!versions.containsKey(id)) {
+                        loadTitles(id, 0L);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Не удалось загрузить заголовки объявления {}: {}", id, e.getMessage());
+                }
+            }
+
+            rebuild();
+        });
+    }
+
+    @EventListener
+    public void onListingChanged(ListingChangedEvent event) {
+        Long listingId = event.listingId();
+        long version = versions.merge(listingId, 1L, Long::sum);
+
+        if (event.type() == ListingChangedEvent.Type.DELETED) {
+            removeTitles(listingId, version);
+        } else {
+            Listing listing = listingQueryService.findListing(listingId.toString());
+            if (!CatalogVisibility.isVisible(listing)) {
+                removeTitles(listingId, version);
+            } else {
+                loadTitles(listingId, version);
+            }
+        }
+
+        dirty = true;
+    }
+
+    // Перестраиваем пачкой, чтобы поток изменений не пересобирал массивы на каждую запись
+    @Scheduled(fixedDelayString = "${catalog.suggest.rebuild-delay-ms:30000}")
+    public void rebuildIfNeeded() {
+        if (lastBuild == 0) {
+            return;
+        }
+        if (dirty || System.currentTimeMillis() - lastBuild > REBUILD_INTERVAL_MILLIS) {
+            rebuild();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, String lang, int limit) {
+        Snapshot snapshot = snapshots.getOrDefault(lang, Snapshot.EMPTY);
+        String normalized = SearchTokenizer.normalize(prefix, lang).strip();
+
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        int[] targets;
+        if (normalized.length() <= SHORT_PREFIX && limit <= MAX_LIMIT) {
+            targets = snapshot.shortPrefixTop().getOrDefault(normalized, new int[0]);
+        } else {
+            String[] keys = snapshot.keys();
+            int from = lowerBound(keys, normalized);
+            int to = from;
+            while (to < keys.length && keys[to].startsWith(normalized)) {
+                to++;
+            }
+            targets = topTargets(snapshot.keyTargets(), snapshot.scores(), from, to, limit);
+        }
+
+        int count = Math.min(limit, targets.length);
+        List<Suggestion> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int target = targets[i];
+            result.add(new Suggestion(snapshot.types()[target], snapshot.ids()[target], snapshot.texts()[target]));
+        }
+        return result;
+    }
+
+    // Лучшие по популярности цели ключей [from, to), по убыванию; минимальная куча держит только limit лучших
+    private static int[] topTargets(int[] keyTargets, long[] scores, int from, int to, int limit) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong(target -> scores[target]));
+        Set<Integer> seen = new HashSet<>();
+
+        for (int i = from; i < to; i++) {
+            int target = keyTargets[i];
+            if (!seen.add(target)) {
+                continue;
+            }
+            top.offer(target);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll();
+        }
+        return result;
+    }
+
+    private void removeTitles(Long listingId, long version) {
+        titles.computeIfPresent(listingId, (id, byLocale) -> versions.getOrDefault(id, 0L) == version ? null : byLocale);
+    }
+
+    private void loadTitles(Long listingId, long version) {
+        Map<String, ListingTranslationDTO> translations = listingQueryService.getTranslations(listingId);
+
+        Map<String, String> byLocale = new HashMap<>();
+        translations.forEach((lang, translation) -> {
+            if (translation.getTitle() != null && !translation.getTitle().isBlank()) {
+                byLocale.put(lang, translation.getTitle());
+            }
+        });
+
+        // Проверка версии и запись под блокировкой ключа: параллельное изменение не проскочит между ними
+        titles.compute(listingId, (id, previous) -> versions.getOrDefault(id, 0L) == version ? byLocale : previous);
+    }
+
+    // Перестройка читает базу, поэтому ReentrantLock вместо synchronized: первая сборка идёт в виртуальном потоке
+    private void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            // Перестройка уже идёт и подхватит изменения
+            return;
+        }
+        try {
+            doRebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void doRebuild() {
+        long start = System.currentTimeMillis();
+        dirty = false;
+
+        Map<Long, Long> listingViews = new HashMap<>();
+        entityManager.createQuery("SELECT l.id, COALESCE(l.views, 0) FROM Listing l WHERE " + CatalogVisibility.PREDICATE, Object[].class)
+                     .getResultList()
+                     .forEach(row -> listingViews.put((Long) row[0], ((Number) row[1]).longValue()));
+
+        Map<Long, Long> categorySizes = new HashMap<>();
+        entityManager.createQuery("SELECT l.category.id, COUNT(l) FROM Listing l WHERE " + CatalogVisibility.PREDICATE
+                         + " GROUP BY l.category.id", Object[].class)
+                     .getResultList()
+                     .forEach(row -> categorySizes.put((Long) row[0], ((Number) row[1]).longValue()));
+
+        List<Category> categories = categoryRepository.findAll();
+
+        Map<String, Snapshot> built = new HashMap<>();
+        for (String lang : LOCALES) {
+            List<Target> targets = new ArrayList<>();
+
+            titles.forEach((id, byLocale) -> {
+                String title = byLocale.get(lang);
+                if (title != null) {
+                    targets.add(new Target(Type.LISTING, id, title, listingViews.getOrDefault(id, 0L)));
+                }
+            });
+
+            Locale locale = Locale.of(lang);
+            for (Category category : categories) {
+                String name = categoryService.toDTO(category, locale).getName();
+                if (name != null && !name.isBlank()) {
+                    targets.add(new Target(Type.CATEGORY, category.getId(), name, categorySizes.getOrDefault(category.getId(), 0L)));
+                }
+            }
+
+            built.put(lang, buildSnapshot(targets, lang));
+        }
+
+        snapshots = built;
+        lastBuild = System.currentTimeMillis();
+        logger.debug("Индекс подсказок перестроен за {} мс", lastBuild - start);
+    }
+
+    private Snapshot buildSnapshot(List<Target> targets, String lang) {
+        int count = targets.size();
+        Type[] types = new Type[count];
+        long[] ids = new long[count];
+        String[] texts = new String[count];
+        long[] scores = new long[count];
+
+        List<String> keyList = new ArrayList<>();
+        List<Integer> keyTargetList = new ArrayList<>();
+
+        for (int t = 0; t < count; t++) {
+            Target target = targets.get(t);
+            types[t] = target.type();
+            ids[t] = target.id();
+            texts[t] = target.text();
+            scores[t] = target.score();
+
+            // Ключ с начала каждого слова, чтобы "ремонт" находил "Быстрый ремонт техники"
+            String normalized = SearchTokenizer.normalize(target.text(), lang).strip();
+            for (int i = 0; i < normalized.length(); i++) {
+                boolean wordStart = i == 0 || !Character.isLetterOrDigit(normalized.charAt(i - 1));
+                if (wordStart && Character.isLetterOrDigit(normalized.charAt(i))) {
+                    keyList.add(normalized.substring(i));
+                    keyTargetList.add(t);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+
+        String[] keys = new String[order.length];
+        int[] keyTargets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyTargets[i] = keyTargetList.get(order[i]);
+        }
+
+        // Диапазон ключей с общим коротким префиксом непрерывен в отсортированном массиве
+        Map<String, int[]> shortPrefixTop = new HashMap<>();
+        for (int length = 1; length <= SHORT_PREFIX; length++) {
+            int from = 0;
+            while (from < keys.length) {
+                if (keys[from].length() < length) {
+                    from++;
+                    continue;
+                }
+                String prefix = keys[from].substring(0, length);
+                int to = from + 1;
+                while (to < keys.length && keys[to].startsWith(prefix)) {
+                    to++;
+                }
+                shortPrefixTop.put(prefix, topTargets(keyTargets, scores, from, to, MAX_LIMIT));
+                from = to;
+            }
+        }
+
+        return new Snapshot(keys, keyTargets, types, ids, texts, scores, shortPrefixTop);
+    }
+
+    private int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,155 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.workswap.api.services.producers.ListingViewBatchProducer;
+import org.workswap.api.services.producers.ListingViewBatchProducer.ListingViewBatch;
+import org.workswap.api.services.producers.ListingViewBatchProducer.ListingViewDelta;
+import org.workswap.common.dto.stat.ListingViewDTO;
+import org.workswap.core.services.producers.ListingViewProducer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+// Копит просмотры объявлений в памяти и отправляет дельты пачками: по таймеру или по числу событий
+@Component
+@RequiredArgsConstructor
+public class ListingViewAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingViewAggregator.class);
+
+    private final ListingViewProducer listingViewProducer;
+    private final ListingViewBatchProducer listingViewBatchProducer;
+
+    // Просмотры копятся по паре (пользователь, объявление), чтобы статистика по пользователям не терялась
+    private record Key(Long userId, Long listingId) {}
+
+    // Отдельный счётчик на пару: getAndSet(0) при сбросе не теряет параллельные инкременты
+    private final Map<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Последняя отправка не удалась: сброс по числу событий ждёт таймера, новые пары не заводятся сверх max-keys
+    private volatile boolean publishFailing = false;
+
+    private volatile long windowStart = System.currentTimeMillis();
+
+    @Value("${listing-views.aggregation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${listing-views.aggregation.max-pending:10000}")
+    private long maxPending;
+
+    @Value("${listing-views.aggregation.max-keys:100000}")
+    private int maxKeys;
+
+    public void record(Long userId, Long listingId) {
+        if (!enabled) {
+            listingViewProducer.listingViewed(new ListingViewDTO(userId, listingId));
+            return;
+        }
+
+        Key key = new Key(userId, listingId);
+        // Пока брокер недоступен, карта не растёт без предела: просмотры новых пар отбрасываются
+        if (publishFailing && counters.size() >= maxKeys && !counters.containsKey(key)) {
+            if (dropped.incrementAndGet() % 10000 == 1) {
+                logger.warn("Брокер недоступен, отброшено просмотров: {}", dropped.get());
+            }
+            return;
+        }
+
+        // Инкремент внутри compute: удаление обнулённой пары при сбросе не потеряет этот просмотр
+        counters.compute(key, (k, counter) -> {
+            AtomicLong result = counter == null ? new AtomicLong() : counter;
+            result.incrementAndGet();
+            return result;
+        });
+
+        // Флаг занимает тот, кто запускает поток: одновременно идёт не больше одного сброса
+        if (pending.incrementAndGet() >= maxPending && !publishFailing && flushing.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("listing-views-flush").start(() -> {
+                try {
+                    doFlush();
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${listing-views.aggregation.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    // Дослать накопленное при остановке приложения
+    @PreDestroy
+    public void drain() {
+        if (enabled) {
+            logger.info("Отправка накопленных просмотров перед остановкой");
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            doFlush();
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        long from = windowStart;
+        long to = System.currentTimeMillis();
+        windowStart = to;
+
+        List<ListingViewDelta> deltas = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<Key, AtomicLong> entry : counters.entrySet()) {
+            long views = entry.getValue().getAndSet(0);
+            if (views > 0) {
+                deltas.add(new ListingViewDelta(entry.getKey().userId(), entry.getKey().listingId(), views));
+                total += views;
+            }
+        }
+        // Обнулённые пары убираем, иначе карта растёт на каждую уникальную пару навсегда
+        for (Key key : counters.keySet()) {
+            counters.computeIfPresent(key, (k, counter) -> counter.get() == 0 ? null : counter);
+        }
+        pending.addAndGet(-total);
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            listingViewBatchProducer.sendBatch(new ListingViewBatch(deltas, from, to));
+            publishFailing = false;
+        } catch (Exception e) {
+            publishFailing = true;
+            // Возвращаем просмотры обратно, чтобы отправить их со следующей пачкой
+            logger.warn("Не удалось отправить пачку просмотров, повторим позже: {}", e.getMessage());
+            for (ListingViewDelta delta : deltas) {
+                counters.computeIfAbsent(new Key(delta.userId(), delta.listingId()), key -> new AtomicLong()).addAndGet(delta.views());
+            }
+            pending.addAndGet(total);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.workswap.api.services.components;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Отсев повторных просмотров (userId + listingId) в пределах окна.
+// Два фильтра Блума: текущий и предыдущий; по истечении окна предыдущий выбрасывается,
+// поэтому повтор гарантированно отсеивается минимум одно окно, а память ограничена двумя фильтрами.
+@Component
+public class ListingViewDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingViewDeduplicator.class);
+
+    private final boolean enabled;
+    private final int bitCount;
+    private final int hashCount;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public ListingViewDeduplicator(
+        @Value("${listing-views.dedup.enabled:true}") boolean enabled,
+        @Value("${listing-views.dedup.expected-views-per-window:1000000}") long expectedViews,
+        @Value("${listing-views.dedup.false-positive-rate:0.001}") double falsePositiveRate
+    ) {
+        this.enabled = enabled;
+
+        // Стандартные формулы: m = -n*ln(p)/ln(2)^2, k = m/n*ln(2)
+        long bits = (long) Math.ceil(-expectedViews * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(bits, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedViews * Math.log(2)));
+
+        this.current = new BloomFilter(bitCount);
+        this.previous = new BloomFilter(bitCount);
+
+        logger.info("Фильтр повторных просмотров: {} КБ на окно, {} хеш-функций", bitCount / 8 / 1024, hashCount);
+    }
+
+    // true, если просмотр в текущем окне первый и его нужно учитывать
+    public boolean firstView(Long userId, Long listingId) {
+        if (!enabled || userId == null) {
+            return true;
+        }
+
+        long hash = mix(userId * 0x9E3779B97F4A7C15L ^ listingId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        BloomFilter active = current;
+        if (previous.mightContain(h1, h2, hashCount) || active.mightContain(h1, h2, hashCount)) {
+            return false;
+        }
+
+        // Между проверкой и записью может пройти второй такой же просмотр — допустимо, это редкий дубль
+        active.put(h1, h2, hashCount);
+        return true;
+    }
+
+    @Scheduled(fixedRateString = "${listing-views.dedup.window-ms:1800000}")
+    public void rotate() {
+        previous = current;
+        current = new BloomFilter(bitCount);
+    }
+
+    // Финализатор splitmix64 для равномерного распределения битов
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final int bitCount;
+
+        BloomFilter(int bitCount) {
+            this.bitCount = bitCount;
+            this.words = new AtomicLongArray((bitCount + 63) / 64);
+        }
+
+        boolean mightContain(int h1, int h2, int hashCount) {
+            for (int i = 0; i < hashCount; i++) {
+                int bit = index(h1, h2, i);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(int h1, int h2, int hashCount) {
+            for (int i = 0; i < hashCount; i++) {
+                int bit = index(h1, h2, i);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value;
+                do {
+                    value = words.get(word);
+                    if ((value & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, value, value | mask));
+            }
+        }
+
+        // Двойное хеширование (Kirsch–Mitzenmacher): k индексов из двух хешей
+        private int index(int h1, int h2, int i) {
+            return Math.floorMod(h1 + i * h2, bitCount);
+        }
+    }
+}
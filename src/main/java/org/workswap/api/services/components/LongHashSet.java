@@ -0,0 +1,135 @@
+package org.workswap.api.services.components;
+
+// Компактное множество long без упаковки в Long: открытая адресация, линейное пробирование.
+// 0 используется как пустая ячейка, поэтому хранится отдельным флагом. Не потокобезопасно.
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        this.table = new long[capacity];
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == value) {
+                return true;
+            }
+        }
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsZero;
+            containsZero = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+
+        // Держим заполнение не выше 50%, чтобы цепочки пробирования оставались короткими
+        if ((size + 1) * 2 > table.length) {
+            resize(table.length << 1);
+        }
+
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == value) {
+                return false;
+            }
+            if (current == EMPTY) {
+                table[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            boolean removed = containsZero;
+            containsZero = false;
+            if (removed) {
+                size--;
+            }
+            return removed;
+        }
+
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == value) {
+                table[i] = EMPTY;
+                size--;
+                reinsertCluster((i + 1) & mask, mask);
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int index = 0;
+        if (containsZero) {
+            result[index++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                result[index++] = value;
+            }
+        }
+        return result;
+    }
+
+    // После удаления переставляем хвост кластера, чтобы поиск не обрывался на дыре
+    private void reinsertCluster(int start, int mask) {
+        for (int i = start; table[i] != EMPTY; i = (i + 1) & mask) {
+            long value = table[i];
+            table[i] = EMPTY;
+            size--;
+            add(value);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        size = containsZero ? 1 : 0;
+        for (long value : old) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
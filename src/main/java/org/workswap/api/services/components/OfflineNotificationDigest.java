@@ -0,0 +1,175 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.workswap.common.dto.notification.NotificationDTO;
+import org.workswap.core.services.NotificationService;
+
+import jakarta.annotation.PreDestroy;
+
+// Сводка офлайн-уведомлений: сообщения одного чата получателю за окно собираются
+// в одно уведомление, готовые сводки сохраняются пачками в одной транзакции.
+// Если пачка не сохранилась, сводки пишутся по одной, а не сохранившиеся возвращаются в очередь
+// и повторяются с паузой ограниченное число раз
+@Component
+public class OfflineNotificationDigest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfflineNotificationDigest.class);
+
+    private record Key(String recipientEmail, Long chatId) {}
+
+    private record Digest(String senderName, String lastText, int count, long openedAt, int attempts) {
+
+        Digest add(String senderName, String text) {
+            return new Digest(senderName, text, count + 1, openedAt, attempts);
+        }
+
+        // Возвращённая в очередь сводка и пришедшие за это время сообщения: текст новее, окно и попытки — от старой
+        Digest merge(Digest newer) {
+            return new Digest(newer.senderName(), newer.lastText(), count + newer.count(),
+                Math.min(openedAt, newer.openedAt()), Math.max(attempts, newer.attempts()));
+        }
+    }
+
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final Map<Key, Digest> pending = new ConcurrentHashMap<>();
+
+    public OfflineNotificationDigest(
+        NotificationService notificationService,
+        PlatformTransactionManager transactionManager,
+        @Value("${chat.offline-digest.enabled:true}") boolean enabled,
+        @Value("${chat.offline-digest.window-ms:30000}") long windowMillis,
+        @Value("${chat.offline-digest.batch-size:100}") int batchSize,
+        @Value("${chat.offline-digest.max-attempts:5}") int maxAttempts
+    ) {
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void add(String recipientEmail, Long chatId, String senderName, String text) {
+        if (!enabled) {
+            notificationService.saveOfflineChatNotification(recipientEmail, toNotification(chatId, new Digest(senderName, text, 1, 0, 0)));
+            return;
+        }
+
+        pending.merge(
+            new Key(recipientEmail, chatId),
+            new Digest(senderName, text, 1, System.currentTimeMillis(), 0),
+            (current, added) -> current.add(senderName, text)
+        );
+    }
+
+    // Окно отсчитывается от первого сообщения, поэтому уведомление задерживается не больше чем на window-ms
+    @Scheduled(fixedDelayString = "${chat.offline-digest.flush-interval-ms:1000}")
+    public void flushExpired() {
+        long deadline = System.currentTimeMillis() - windowMillis;
+        flush(digest -> digest.openedAt() <= deadline);
+    }
+
+    // При остановке повторять некуда: не сохранившиеся сводки только попадают в журнал
+    @PreDestroy
+    public void flushAll() {
+        flush(digest -> true, false);
+    }
+
+    private void flush(Predicate<Digest> ready) {
+        flush(ready, true);
+    }
+
+    private void flush(Predicate<Digest> ready, boolean requeue) {
+        List<Map.Entry<Key, Digest>> batch = new ArrayList<>();
+
+        for (Key key : pending.keySet()) {
+            Digest digest = pending.get(key);
+            if (digest == null || !ready.test(digest)) {
+                continue;
+            }
+            // Сообщение, пришедшее между get и remove, попадёт в следующую сводку
+            if (pending.remove(key, digest)) {
+                batch.add(Map.entry(key, digest));
+            }
+            if (batch.size() >= batchSize) {
+                save(batch, requeue);
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            save(batch, requeue);
+        }
+    }
+
+    private void save(List<Map.Entry<Key, Digest>> batch, boolean requeue) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::saveOne));
+            logger.debug("Сохранено {} сводок офлайн-уведомлений", batch.size());
+            return;
+        } catch (Exception e) {
+            logger.warn("Не удалось сохранить пачку из {} сводок офлайн-уведомлений, сохраняем по одной: {}", batch.size(), e.getMessage());
+        }
+
+        // Одна плохая сводка не должна уносить с собой остальные
+        for (Map.Entry<Key, Digest> entry : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> saveOne(entry));
+            } catch (Exception e) {
+                retryLater(entry.getKey(), entry.getValue(), requeue, e);
+            }
+        }
+    }
+
+    private void saveOne(Map.Entry<Key, Digest> entry) {
+        notificationService.saveOfflineChatNotification(
+            entry.getKey().recipientEmail(),
+            toNotification(entry.getKey().chatId(), entry.getValue())
+        );
+    }
+
+    private void retryLater(Key key, Digest digest, boolean requeue, Exception e) {
+        int attempts = digest.attempts() + 1;
+        if (!requeue || attempts >= maxAttempts) {
+            logger.error("Сводка офлайн-уведомлений для {} по чату {} ({} сообщений) не сохранена после {} попыток: {}",
+                key.recipientEmail(), key.chatId(), digest.count(), attempts, e.getMessage());
+            return;
+        }
+
+        // Пауза растёт с каждой попыткой: сводка станет готовой через 2, 4, 8... секунд
+        long retryAt = System.currentTimeMillis() + (1000L << attempts);
+        Digest retry = new Digest(digest.senderName(), digest.lastText(), digest.count(), retryAt - windowMillis, attempts);
+        pending.merge(key, retry, (newer, requeued) -> requeued.merge(newer));
+    }
+
+    private NotificationDTO toNotification(Long chatId, Digest digest) {
+        String text = digest.count() == 1
+            ? digest.senderName() + ": " + digest.lastText()
+            : digest.count() + " новых сообщений от " + digest.senderName();
+
+        return new NotificationDTO(
+                digest.count() == 1 ? "Новое сообщение" : "Новые сообщения",
+                text,
+                "/secure/messenger?chatId=" + chatId
+        );
+    }
+}
@@ -0,0 +1,348 @@
+package org.workswap.api.services.components;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Ограничение исходящей очереди каждой STOMP-сессии.
+// Кадр считается ожидающим от отправки в clientOutboundChannel до передачи в сокет.
+// Обновления списка чатов заменяют ещё не отправленные обновления того же чата, дельты списка
+// сливаются по id чата, уведомления и прочие одноразовые кадры отбрасываются при заполненной очереди,
+// сообщения не трогаются никогда. Сессия, у которой ожидающих кадров больше предела, закрывается
+// как медленный потребитель.
+@Component
+public class OutboundBackpressure implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundBackpressure.class);
+
+    // Внутренние заголовки с ключом слияния и номером кадра в сессии: тело разбирается один раз
+    // при постановке в очередь. Не native-заголовки, поэтому клиенту не уходят
+    static final String MERGE_KEY_HEADER = "backpressureMergeKey";
+    static final String MERGE_SEQUENCE_HEADER = "backpressureMergeSequence";
+    static final String DELTAS_HEADER = "backpressureDeltas";
+
+    private static final String DELTA_DESTINATION = "/queue/chats.delta";
+
+    public enum Policy {
+        KEEP,
+        MERGE,
+        DROP
+    }
+
+    private static final class SessionState {
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicLong sequence = new AtomicLong();
+        // ключ слияния -> номер последнего кадра с этим ключом
+        final Map<String, Long> latest = new ConcurrentHashMap<>();
+        // id чата -> последняя поставленная в очередь дельта этого чата
+        final Map<Long, PendingDelta> deltas = new ConcurrentHashMap<>();
+        volatile WebSocketSession socket;
+    }
+
+    private record PendingDelta(long sequence, ObjectNode node) {}
+
+    private final ObjectMapper objectMapper;
+
+    private final int softLimit;
+    private final int hardLimit;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    public OutboundBackpressure(
+        ObjectMapper objectMapper,
+        @Value("${websocket.outbound.soft-limit:200}") int softLimit,
+        @Value("${websocket.outbound.hard-limit:1000}") int hardLimit
+    ) {
+        this.objectMapper = objectMapper;
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+    }
+
+    public static Policy policyFor(String destination) {
+        if (destination == null) {
+            return Policy.KEEP;
+        }
+        if (destination.endsWith("/queue/chats") || destination.endsWith("/queue/chats.page")
+                || destination.endsWith(DELTA_DESTINATION)) {
+            return Policy.MERGE;
+        }
+        // Только то, что теряет смысл через секунду: уведомления, набор текста, присутствие
+        if (destination.endsWith("/queue/notifications") || destination.contains("/typing") || destination.contains("/presence")) {
+            return Policy.DROP;
+        }
+        return Policy.KEEP;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || sessionId == null) {
+            return message;
+        }
+
+        // Состояние создаётся при открытии сокета; кадры уже закрытой сессии не учитываем
+        SessionState state = sessions.get(sessionId);
+        if (state == null) {
+            return message;
+        }
+        int pending = state.pending.get();
+
+        if (pending >= hardLimit) {
+            dropped.increment();
+            disconnect(sessionId, state, pending);
+            return null;
+        }
+
+        Policy policy = policyFor(accessor.getDestination());
+        if (policy == Policy.DROP && pending >= softLimit) {
+            dropped.increment();
+            return null;
+        }
+        if (policy == Policy.MERGE && accessor.getDestination().endsWith(DELTA_DESTINATION)) {
+            message = mergeDeltas(state, message);
+        } else if (policy == Policy.MERGE) {
+            String key = mergeKey(accessor.getDestination(), message);
+            if (key != null) {
+                long sequence = state.sequence.incrementAndGet();
+                SimpMessageHeaderAccessor tagged = SimpMessageHeaderAccessor.wrap(message);
+                tagged.setHeader(MERGE_KEY_HEADER, key);
+                tagged.setHeader(MERGE_SEQUENCE_HEADER, sequence);
+                message = MessageBuilder.createMessage(message.getPayload(), tagged.getMessageHeaders());
+                if (state.latest.put(key, sequence) != null) {
+                    // Предыдущий кадр с этим ключом ещё в очереди, он будет пропущен при отправке
+                    merged.increment();
+                }
+            }
+        }
+
+        state.pending.incrementAndGet();
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // Кадр не попал в очередь канала — снимаем учёт сразу
+        if (!sent) {
+            release(message);
+        }
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || accessor.getSessionId() == null) {
+            return message;
+        }
+        if (accessor.getHeader(DELTAS_HEADER) instanceof ArrayNode deltas) {
+            return supersededDeltasRemoved(message, accessor, deltas);
+        }
+        if (!(accessor.getHeader(MERGE_KEY_HEADER) instanceof String key)) {
+            return message;
+        }
+
+        SessionState state = sessions.get(accessor.getSessionId());
+        Long sequence = (Long) accessor.getHeader(MERGE_SEQUENCE_HEADER);
+        if (state != null && sequence != null) {
+            Long latest = state.latest.get(key);
+            if (latest != null && !latest.equals(sequence)) {
+                // Есть более новый кадр с тем же ключом: этот устарел
+                release(message);
+                return null;
+            }
+            state.latest.remove(key, sequence);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message);
+    }
+
+    public WebSocketHandlerDecoratorFactory sessionTracker() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.computeIfAbsent(session.getId(), id -> new SessionState()).socket = session;
+                super.afterConnectionEstablished(session);
+            }
+        };
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    public Map<String, Object> getStats() {
+        long totalPending = 0;
+        int maxPending = 0;
+        for (SessionState state : sessions.values()) {
+            int pending = state.pending.get();
+            totalPending += pending;
+            maxPending = Math.max(maxPending, pending);
+        }
+
+        return Map.of(
+            "sessions", sessions.size(),
+            "pending", totalPending,
+            "maxSessionPending", maxPending,
+            "merged", merged.sum(),
+            "dropped", dropped.sum(),
+            "slowConsumersDisconnected", disconnected.sum()
+        );
+    }
+
+    private void release(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || accessor.getSessionId() == null) {
+            return;
+        }
+        SessionState state = sessions.get(accessor.getSessionId());
+        if (state != null) {
+            state.pending.updateAndGet(pending -> Math.max(0, pending - 1));
+        }
+    }
+
+    private void disconnect(String sessionId, SessionState state, int pending) {
+        WebSocketSession socket = state.socket;
+        if (socket == null || !socket.isOpen()) {
+            return;
+        }
+        try {
+            logger.warn("Сессия {} не успевает принимать кадры ({} в очереди), закрываем", sessionId, pending);
+            disconnected.increment();
+            socket.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            logger.debug("Не удалось закрыть сессию {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    // Кадр дельт — массив ChatDeltaDTO. Новая дельта чата вбирает поля ещё не отправленной старой
+    // (в дельте только изменившиеся поля, свои значения новее), старая при отправке вырезается из своего кадра
+    private Message<?> mergeDeltas(SessionState state, Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        try {
+            if (!(objectMapper.readTree(payload) instanceof ArrayNode deltas)) {
+                return message;
+            }
+            long sequence = state.sequence.incrementAndGet();
+            for (JsonNode delta : deltas) {
+                if (!(delta instanceof ObjectNode node) || !node.hasNonNull("chatId")) {
+                    continue;
+                }
+                state.deltas.compute(node.get("chatId").asLong(), (chatId, previous) -> {
+                    if (previous != null) {
+                        previous.node().fields().forEachRemaining(field -> {
+                            if (!node.has(field.getKey())) {
+                                node.set(field.getKey(), field.getValue());
+                            }
+                        });
+                        merged.increment();
+                    }
+                    return new PendingDelta(sequence, node);
+                });
+            }
+
+            SimpMessageHeaderAccessor tagged = SimpMessageHeaderAccessor.wrap(message);
+            tagged.setHeader(MERGE_SEQUENCE_HEADER, sequence);
+            tagged.setHeader(DELTAS_HEADER, deltas);
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(deltas), tagged.getMessageHeaders());
+        } catch (Exception e) {
+            return message;
+        }
+    }
+
+    private Message<?> supersededDeltasRemoved(Message<?> message, SimpMessageHeaderAccessor accessor, ArrayNode deltas) {
+        SessionState state = sessions.get(accessor.getSessionId());
+        Long sequence = (Long) accessor.getHeader(MERGE_SEQUENCE_HEADER);
+        if (state == null || sequence == null) {
+            return message;
+        }
+
+        ArrayNode current = objectMapper.createArrayNode();
+        for (JsonNode delta : deltas) {
+            if (!delta.hasNonNull("chatId")) {
+                current.add(delta);
+                continue;
+            }
+            long chatId = delta.get("chatId").asLong();
+            PendingDelta latest = state.deltas.get(chatId);
+            if (latest != null && latest.sequence() != sequence) {
+                // Дельта этого чата уже есть в более новом кадре вместе с нашими полями
+                continue;
+            }
+            if (latest != null) {
+                state.deltas.remove(chatId, latest);
+            }
+            current.add(delta);
+        }
+
+        if (current.isEmpty()) {
+            release(message);
+            return null;
+        }
+        if (current.size() == deltas.size()) {
+            return message;
+        }
+        try {
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(current), accessor.getMessageHeaders());
+        } catch (Exception e) {
+            return message;
+        }
+    }
+
+    // Для полного ChatDTO ключ — id чата, для страницы списка — номер страницы.
+    // Ответ на запрос с sinceVersion (в нём есть unreadCounts) — дельта, её нельзя заменить другой страницей:
+    // ни полной, ни дельтой от другой версии, поэтому такие кадры не сливаются
+    private String mergeKey(String destination, Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            if (node.has("id")) {
+                return destination + ":" + node.get("id").asText();
+            }
+            if (node.has("page") && !node.hasNonNull("unreadCounts")) {
+                return destination + ":" + node.get("page").asText();
+            }
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.workswap.api.services.components;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+// Компактная кодировка исходящих кадров по выбору клиента.
+// Клиент присылает в CONNECT заголовок payload-encoding: cbor, после этого JSON-тела кадров его сессии
+// перекодируются в CBOR и уходят бинарными кадрами с тем же заголовком. Старые клиенты получают JSON как раньше.
+@Component
+public class PayloadEncodingInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadEncodingInterceptor.class);
+
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final String CBOR = "cbor";
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private final ObjectMapper objectMapper;
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    // Сессии, договорившиеся о CBOR
+    private final Map<String, Boolean> cborSessions = new ConcurrentHashMap<>();
+
+    // Замер на живом трафике: сколько байт было бы в JSON, сколько ушло в CBOR и сколько стоило перекодирование
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder jsonBytes = new LongAdder();
+    private final LongAdder cborBytes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+
+    public PayloadEncodingInterceptor(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && accessor.getCommand() == StompCommand.CONNECT
+                        && CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))) {
+                    cborSessions.put(accessor.getSessionId(), Boolean.TRUE);
+                }
+                return message;
+            }
+        };
+    }
+
+    // Перекодирование в потоке отправки в сокет, а не в потоке брокера; к этому моменту
+    // ограничение очереди сессии уже отбросило устаревшие кадры
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || accessor.getSessionId() == null
+                || !cborSessions.containsKey(accessor.getSessionId())
+                || !(message.getPayload() instanceof byte[] payload)
+                || payload.length == 0
+                || accessor.getContentType() == null
+                || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(accessor.getContentType())) {
+            return message;
+        }
+
+        try {
+            long start = System.nanoTime();
+            JsonNode tree = objectMapper.readTree(payload);
+            byte[] encoded = cborMapper.writeValueAsBytes(tree);
+            encodeNanos.add(System.nanoTime() - start);
+
+            frames.increment();
+            jsonBytes.add(payload.length);
+            cborBytes.add(encoded.length);
+
+            // octet-stream заставляет STOMP-обработчик отправить бинарный кадр, сам формат — в заголовке
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+            accessor.setLeaveMutable(true);
+
+            return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+        } catch (Exception e) {
+            logger.warn("Не удалось перекодировать кадр в CBOR, отправляем JSON: {}", e.getMessage());
+            return message;
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+
+    public Map<String, Object> getStats() {
+        long frameCount = frames.sum();
+        long json = jsonBytes.sum();
+        long cbor = cborBytes.sum();
+
+        return Map.of(
+            "sessions", cborSessions.size(),
+            "frames", frameCount,
+            "jsonBytes", json,
+            "cborBytes", cbor,
+            "ratio", json == 0 ? 1.0 : (double) cbor / json,
+            "avgEncodeMicros", frameCount == 0 ? 0.0 : encodeNanos.sum() / 1000.0 / frameCount
+        );
+    }
+}
@@ -0,0 +1,222 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Отметки прочтения по участнику: id последнего прочитанного сообщения.
+// Прочтение продвигает отметку в памяти; флаги сообщений в базе проставляются пачкой раз в интервал,
+// по одному UPDATE на участника, сколько бы раз он ни читал. Последний id чата держится в памяти:
+// его обновляет отправка, сообщения других узлов сбрасывают его через CacheInvalidationBus, а база
+// спрашивается только когда id чата неизвестен. Повторное прочтение без новых сообщений — одна CAS в памяти.
+@Component
+public class ReadWatermarks {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWatermarks.class);
+
+    private static final String LAST_MESSAGE_CACHE = "chat.last-message";
+
+    record Key(Long chatId, Long userId) {}
+
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxEntries;
+
+    // ReentrantLock, а не synchronized: flushUser вызывается из виртуальных потоков STOMP,
+    // а UPDATE под monitor-блокировкой закрепил бы их за несущими потоками
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Отметка и её пометка в dirty меняются только внутри compute по ключу — trim не удалит её между ними
+    private final Map<Key, Long> watermarks = new ConcurrentHashMap<>();
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+
+    // id последнего сообщения чата, чтобы не спрашивать базу при каждом прочтении
+    private final Map<Long, AtomicLong> lastMessageIds = new ConcurrentHashMap<>();
+    // Растёт при каждом сбросе, чтобы не сохранить id, загруженный до сброса
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReadWatermarks(
+        CacheInvalidationBus invalidationBus,
+        PlatformTransactionManager transactionManager,
+        @Value("${chat.read-watermark.max-entries:200000}") int maxEntries
+    ) {
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxEntries = maxEntries;
+        invalidationBus.subscribe(LAST_MESSAGE_CACHE, chatId -> lastMessageIdChanged(chatId));
+    }
+
+    // Вызывается после записи сообщения в базу, поэтому другой узел, сбросив id, загрузит уже и это сообщение.
+    // id выдаются по возрастанию, так что без записи в кэше новый id и есть последний
+    public void messageSent(Long chatId, long messageId) {
+        lastMessageIds.computeIfAbsent(chatId, id -> new AtomicLong()).accumulateAndGet(messageId, Math::max);
+        invalidationBus.publish(LAST_MESSAGE_CACHE, chatId);
+    }
+
+    // Отмечает прочитанным всё до последнего сообщения чата; false — отметка уже стояла там
+    public boolean markRead(Long chatId, Long userId) {
+        AtomicLong cached = lastMessageIds.get(chatId);
+        long upTo = cached != null ? cached.get() : loadLastMessageId(chatId);
+        return advance(new Key(chatId, userId), upTo);
+    }
+
+    private boolean advance(Key key, long upTo) {
+        if (upTo == 0) {
+            return false;
+        }
+        boolean[] advanced = { false };
+        watermarks.compute(key, (k, current) -> {
+            if (current != null && current >= upTo) {
+                return current;
+            }
+            advanced[0] = true;
+            dirty.add(k);
+            return upTo;
+        });
+        return advanced[0];
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-watermark.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (persist(drain(key -> true))) {
+                trim();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Несохранённые отметки пользователя сразу в базу: перед загрузкой счётчиков непрочитанных,
+    // иначе запрос посчитает уже прочитанное. Блокировка дожидается и идущего flush
+    public void flushUser(Long userId) {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            persist(drain(key -> key.userId().equals(userId)));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Снимок берётся внутри compute: отметка, продвинутая после него, снова попадёт в dirty
+    private List<Map.Entry<Key, Long>> drain(Predicate<Key> filter) {
+        List<Map.Entry<Key, Long>> batch = new ArrayList<>();
+        for (Key key : dirty) {
+            if (!filter.test(key)) {
+                continue;
+            }
+            watermarks.computeIfPresent(key, (k, upTo) -> {
+                if (dirty.remove(k)) {
+                    batch.add(Map.entry(k, upTo));
+                }
+                return upTo;
+            });
+        }
+        return batch;
+    }
+
+    private boolean persist(List<Map.Entry<Key, Long>> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            save(batch);
+            logger.debug("Сохранены отметки прочтения: {}", batch.size());
+            return true;
+        } catch (Exception e) {
+            logger.error("Не удалось сохранить {} отметок прочтения, повторим: {}", batch.size(), e.getMessage());
+            batch.forEach(entry -> watermarks.computeIfPresent(entry.getKey(), (k, upTo) -> {
+                dirty.add(k);
+                return upTo;
+            }));
+            return false;
+        }
+    }
+
+    void save(List<Map.Entry<Key, Long>> batch) {
+        transactionTemplate.executeWithoutResult(status -> batch.forEach(entry ->
+            entityManager.createQuery("UPDATE Message m SET m.read = true WHERE m.chat.id = :chatId"
+                    + " AND m.receiver.id = :userId AND m.id <= :upTo AND m.read = false")
+                         .setParameter("chatId", entry.getKey().chatId())
+                         .setParameter("userId", entry.getKey().userId())
+                         .setParameter("upTo", entry.getValue())
+                         .executeUpdate()
+        ));
+    }
+
+    // Сохранённые отметки можно забыть: повторное прочтение просто снова поставит их
+    private void trim() {
+        if (watermarks.size() > maxEntries) {
+            for (Key key : watermarks.keySet()) {
+                watermarks.computeIfPresent(key, (k, upTo) -> dirty.contains(k) ? upTo : null);
+            }
+        }
+        if (lastMessageIds.size() > maxEntries) {
+            lastMessageIds.clear();
+        }
+    }
+
+    private void lastMessageIdChanged(long chatId) {
+        generation.incrementAndGet();
+        lastMessageIds.remove(chatId);
+    }
+
+    private long loadLastMessageId(Long chatId) {
+        long loadedGeneration = generation.get();
+        Long maxId = queryLastMessageId(chatId);
+        long loaded = maxId == null ? 0 : maxId;
+
+        // Сброс во время запроса: база могла вернуть id до нового сообщения, такой результат не кэшируем.
+        // Проверка внутри compute: сброс, пришедший после неё, удалит запись уже после записи
+        long[] result = { loaded };
+        lastMessageIds.compute(chatId, (id, current) -> {
+            if (loadedGeneration != generation.get()) {
+                return current;
+            }
+            // Если параллельно уже пришло новое сообщение, его id больше и сохранится
+            AtomicLong last = current != null ? current : new AtomicLong();
+            result[0] = last.accumulateAndGet(loaded, Math::max);
+            return last;
+        });
+        return result[0];
+    }
+
+    Long queryLastMessageId(Long chatId) {
+        return entityManager
+            .createQuery("SELECT MAX(m.id) FROM Message m WHERE m.chat.id = :chatId", Long.class)
+            .setParameter("chatId", chatId)
+            .getSingleResult();
+    }
+}
@@ -0,0 +1,62 @@
+package org.workswap.api.services.components;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.workswap.api.events.ListingChangedEvent;
+
+// Отметки изменений того, у чего нет своей отметки в базе: переводы, картинки, категории.
+// Отметка — случайное число, которое заменяется при каждом изменении через API и на остальных узлах
+// через CacheInvalidationBus. У разных узлов отметки разные: клиент, попавший на другой узел, просто получит 200.
+@Component
+public class ResourceStamps {
+
+    public static final String LISTING = "resource-stamp.listing";
+    public static final String CATEGORIES = "resource-stamp.categories";
+
+    private final CacheInvalidationBus invalidationBus;
+    private final int maxEntries;
+
+    private final Map<String, Map<Long, Long>> stamps = new ConcurrentHashMap<>();
+
+    public ResourceStamps(
+        CacheInvalidationBus invalidationBus,
+        @Value("${resource-stamps.max-entries:200000}") int maxEntries
+    ) {
+        this.invalidationBus = invalidationBus;
+        this.maxEntries = maxEntries;
+        invalidationBus.subscribe(LISTING, key -> changedLocal(LISTING, key));
+        invalidationBus.subscribe(CATEGORIES, key -> changedLocal(CATEGORIES, key));
+    }
+
+    public long get(String resource, long key) {
+        Map<Long, Long> byKey = stamps.computeIfAbsent(resource, r -> new ConcurrentHashMap<>());
+        // Забытая отметка выдаётся заново: клиенты один раз получат полный ответ
+        if (byKey.size() > maxEntries) {
+            byKey.clear();
+        }
+        return byKey.computeIfAbsent(key, k -> ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+    }
+
+    public void changed(String resource, long key) {
+        changedLocal(resource, key);
+        invalidationBus.publish(resource, key);
+    }
+
+    // Сохранение через ListingCommandService: поля, переводы, главная картинка, новая картинка
+    @EventListener
+    public void onListingChanged(ListingChangedEvent event) {
+        changed(LISTING, event.listingId());
+    }
+
+    private void changedLocal(String resource, long key) {
+        Map<Long, Long> byKey = stamps.get(resource);
+        if (byKey != null) {
+            byKey.remove(key);
+        }
+    }
+}
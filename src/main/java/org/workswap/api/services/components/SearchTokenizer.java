@@ -0,0 +1,85 @@
+package org.workswap.api.services.components;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Разбиение текста на термы для поиска по языкам из lang/: ru, en, fi, it
+public final class SearchTokenizer {
+
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    // Стоп-слова сравниваются с уже нормализованными токенами, поэтому и сами проходят нормализацию: että -> etta
+    private static final Map<String, Set<String>> STOP_WORDS = normalizeStopWords(Map.of(
+        "ru", Set.of("и", "в", "во", "на", "с", "со", "по", "для", "не", "от", "до", "за", "из", "к", "о", "об", "а", "но", "или", "что", "это"),
+        "en", Set.of("a", "an", "the", "and", "or", "of", "in", "on", "for", "to", "with", "by", "at", "is", "it"),
+        "fi", Set.of("ja", "tai", "on", "ei", "se", "että", "kuin", "myös", "vai", "sekä"),
+        "it", Set.of("il", "lo", "la", "i", "gli", "le", "un", "una", "e", "o", "di", "da", "in", "con", "per", "su", "che")
+    ));
+
+    private SearchTokenizer() {}
+
+    private static Map<String, Set<String>> normalizeStopWords(Map<String, Set<String>> raw) {
+        Map<String, Set<String>> result = new HashMap<>();
+        raw.forEach((lang, words) -> result.put(lang, words.stream()
+                                                            .map(word -> normalize(word, lang))
+                                                            .collect(Collectors.toUnmodifiableSet())));
+        return Map.copyOf(result);
+    }
+
+    public static List<String> tokenize(String text, String lang) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        Set<String> stopWords = STOP_WORDS.getOrDefault(lang, Set.of());
+        String normalized = normalize(text, lang);
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else {
+                addToken(tokens, current, stopWords);
+            }
+        }
+        addToken(tokens, current, stopWords);
+
+        return tokens;
+    }
+
+    public static Set<String> distinctTokens(String text, String lang) {
+        return new LinkedHashSet<>(tokenize(text, lang));
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder current, Set<String> stopWords) {
+        if (current.isEmpty()) {
+            return;
+        }
+        String token = current.toString();
+        current.setLength(0);
+        if (!stopWords.contains(token)) {
+            tokens.add(token);
+        }
+    }
+
+    public static String normalize(String text, String lang) {
+        String lower = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        // В русском ё и е пишут взаимозаменяемо, а й — отдельная буква, её не трогаем
+        if ("ru".equals(lang)) {
+            return lower.replace('ё', 'е');
+        }
+
+        // Для латиницы ударения и умляуты часто не набирают: caffè -> caffe, hyvä -> hyva
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+}
@@ -0,0 +1,126 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+// Удаление временных чатов без сообщений набором запросов, без загрузки чатов и их сообщений.
+// Отобранные чаты блокируются, а условие «временный и пустой» повторяется в самих DELETE: сообщение,
+// пришедшее между выборкой и удалением, чат сохраняет. Первое сообщение временного чата пишется сразу,
+// мимо отложенной записи (см. ChatWebSocketController), так что у временного чата не бывает сообщений в очереди.
+// Фоновая уборка трогает только чаты старше своего интервала: у чата нет времени создания, поэтому возраст
+// определяется по id — узел раз в минуту запоминает наибольший id чата.
+@Component
+@RequiredArgsConstructor
+public class TemporaryChatCleaner {
+
+    private static final String EMPTY_TEMPORARY = "c.temporary = true AND NOT EXISTS (SELECT m.id FROM Message m WHERE m.chat = c)";
+
+    private record Sample(long takenAt, long maxChatId) {}
+
+    private final ChatMembershipCache chatMembershipCache;
+
+    @Value("${chat.temporary-sweeper.interval-ms:3600000}")
+    private long sweepIntervalMillis;
+
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // По запросу пользователя удаляются все его пустые временные чаты, без ограничения по возрасту
+    @Transactional
+    public int deleteEmptyForUser(Long userId) {
+        List<Long> ids = entityManager
+            .createQuery("SELECT c.id FROM Chat c WHERE " + EMPTY_TEMPORARY
+                + " AND EXISTS (SELECT p.id FROM ChatParticipant p WHERE p.chat = c AND p.user.id = :userId)", Long.class)
+            .setParameter("userId", userId)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+
+        return delete(ids);
+    }
+
+    // Наибольший id чата, созданного не позже чем ageMillis назад; -1, пока узел работает меньше этого
+    public long idBoundary(long ageMillis) {
+        long before = System.currentTimeMillis() - ageMillis;
+        synchronized (samples) {
+            for (Iterator<Sample> it = samples.descendingIterator(); it.hasNext(); ) {
+                Sample sample = it.next();
+                if (sample.takenAt() <= before) {
+                    return sample.maxChatId();
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.temporary-cleanup.sample-interval-ms:60000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        Sample sample = new Sample(now, getMaxChatId());
+        // Хранятся снимки за интервал уборки и ещё один, более старый, — он и будет границей
+        long keepAfter = now - sweepIntervalMillis;
+        synchronized (samples) {
+            samples.addLast(sample);
+            while (samples.size() > 1) {
+                Iterator<Sample> it = samples.iterator();
+                it.next();
+                if (it.next().takenAt() > keepAfter) {
+                    break;
+                }
+                samples.removeFirst();
+            }
+        }
+    }
+
+    // Одна пачка по всей платформе; только чаты с id не больше maxChatId, чтобы не задеть только что созданные
+    @Transactional
+    public int deleteEmptyBatch(long maxChatId, int batchSize) {
+        List<Long> ids = entityManager
+            .createQuery("SELECT c.id FROM Chat c WHERE c.id <= :maxId AND " + EMPTY_TEMPORARY + " ORDER BY c.id", Long.class)
+            .setParameter("maxId", maxChatId)
+            .setMaxResults(batchSize)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+
+        return delete(ids);
+    }
+
+    @Transactional(readOnly = true)
+    public long getMaxChatId() {
+        Long maxId = entityManager.createQuery("SELECT MAX(c.id) FROM Chat c", Long.class).getSingleResult();
+        return maxId == null ? 0 : maxId;
+    }
+
+    // Массовый DELETE обходит каскады, поэтому участников удаляем явно и раньше чатов.
+    // Чаты заблокированы выборкой, так что новое сообщение не вставится между двумя DELETE.
+    private int delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        entityManager.createQuery("DELETE FROM ChatParticipant p WHERE p.chat.id IN "
+                         + "(SELECT c.id FROM Chat c WHERE c.id IN :ids AND " + EMPTY_TEMPORARY + ")")
+                     .setParameter("ids", ids)
+                     .executeUpdate();
+
+        int deleted = entityManager.createQuery("DELETE FROM Chat c WHERE c.id IN :ids AND " + EMPTY_TEMPORARY)
+                                   .setParameter("ids", ids)
+                                   .executeUpdate();
+
+        ids.forEach(chatMembershipCache::evict);
+        return deleted;
+    }
+}
@@ -0,0 +1,223 @@
+package org.workswap.api.services.components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Счётчики непрочитанных по пользователю и чату. Загружаются одним запросом при первом обращении,
+// дальше меняются на отправке и прочтении. Кэш разбит на полосы со своими блокировками,
+// чтобы отправки разным пользователям не ждали друг друга.
+@Component
+public class UnreadCounters {
+
+    private static final int STRIPES = 64;
+
+    private static final class Counters {
+        final Map<Long, Long> byChat;
+        // Самое новое непрочитанное сообщение чата, попавшее в загрузку: инкремент за него уже учтён запросом
+        final Map<Long, Long> loadedUpTo;
+        final long loadedAt;
+        long total;
+
+        Counters(Map<Long, Long> byChat, Map<Long, Long> loadedUpTo, long loadedAt) {
+            this.byChat = byChat;
+            this.loadedUpTo = loadedUpTo;
+            this.loadedAt = loadedAt;
+            this.total = byChat.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        void increment(Long chatId, long messageId) {
+            if (messageId <= loadedUpTo.getOrDefault(chatId, 0L)) {
+                return;
+            }
+            byChat.merge(chatId, 1L, Long::sum);
+            total++;
+        }
+
+        void reset(Long chatId) {
+            Long previous = byChat.remove(chatId);
+            if (previous != null) {
+                total -= previous;
+            }
+        }
+    }
+
+    // Изменения, пришедшие пока идёт загрузка; применяются к её результату в том же порядке
+    private record Change(Long chatId, long messageId, boolean reset) {}
+
+    private record Loaded(Map<Long, Long> byChat, Map<Long, Long> loadedUpTo) {}
+
+    private final Map<Long, Counters>[] stripes;
+    private final Map<Long, List<Change>>[] loading;
+    private final ReentrantLock[] locks;
+    private final long ttlMillis;
+    private final ReadWatermarks readWatermarks;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @SuppressWarnings("unchecked")
+    public UnreadCounters(
+        ReadWatermarks readWatermarks,
+        @Value("${chat.unread.max-users:50000}") int maxUsers,
+        @Value("${chat.unread.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.readWatermarks = readWatermarks;
+        int perStripe = Math.max(1, maxUsers / STRIPES);
+        this.ttlMillis = ttlSeconds * 1000;
+        this.stripes = new Map[STRIPES];
+        this.loading = new Map[STRIPES];
+        this.locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            loading[i] = new HashMap<>();
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Counters> eldest) {
+                    return size() > perStripe;
+                }
+            };
+        }
+    }
+
+    public long get(Long userId, Long chatId) {
+        return read(userId, counters -> counters.byChat.getOrDefault(chatId, 0L));
+    }
+
+    public long getTotal(Long userId) {
+        return read(userId, counters -> counters.total);
+    }
+
+    public Map<Long, Long> getAll(Long userId) {
+        return read(userId, counters -> Map.copyOf(counters.byChat));
+    }
+
+    // Новое сообщение получателю, вызывается после записи сообщения.
+    // Если счётчики пользователя не загружены, их посчитает запрос при первом чтении
+    public void increment(Long userId, Long chatId, long messageId) {
+        change(userId, new Change(chatId, messageId, false));
+    }
+
+    public void reset(Long userId, Long chatId) {
+        change(userId, new Change(chatId, 0, true));
+    }
+
+    public void evict(Long userId) {
+        int index = stripeIndex(userId);
+        locks[index].lock();
+        try {
+            stripes[index].remove(userId);
+            // Идущая загрузка могла прочитать то, из-за чего счётчики сбрасывают, — её результат не сохраняем
+            loading[index].remove(userId);
+        } finally {
+            locks[index].unlock();
+        }
+    }
+
+    private void change(Long userId, Change change) {
+        int index = stripeIndex(userId);
+        locks[index].lock();
+        try {
+            Counters counters = stripes[index].get(userId);
+            if (counters != null) {
+                apply(counters, change);
+            }
+            List<Change> changes = loading[index].get(userId);
+            if (changes != null) {
+                changes.add(change);
+            }
+        } finally {
+            locks[index].unlock();
+        }
+    }
+
+    private static void apply(Counters counters, Change change) {
+        if (change.reset()) {
+            counters.reset(change.chatId());
+        } else {
+            counters.increment(change.chatId(), change.messageId());
+        }
+    }
+
+    private <T> T read(Long userId, Function<Counters, T> reader) {
+        int index = stripeIndex(userId);
+        Map<Long, Counters> stripe = stripes[index];
+
+        boolean owner;
+        locks[index].lock();
+        try {
+            Counters counters = stripe.get(userId);
+            // Время жизни выравнивает расхождения, если сообщение записал другой узел
+            if (counters != null && System.currentTimeMillis() - counters.loadedAt < ttlMillis) {
+                return reader.apply(counters);
+            }
+            // Изменения копит только первая загрузка; параллельные читают базу сами и ничего не сохраняют
+            owner = loading[index].putIfAbsent(userId, new ArrayList<>()) == null;
+        } finally {
+            locks[index].unlock();
+        }
+
+        // Запрос идёт без блокировки полосы: отправки другим пользователям этой полосы его не ждут
+        Loaded loaded;
+        try {
+            loaded = query(userId);
+        } catch (RuntimeException e) {
+            if (owner) {
+                locks[index].lock();
+                try {
+                    loading[index].remove(userId);
+                } finally {
+                    locks[index].unlock();
+                }
+            }
+            throw e;
+        }
+        Counters counters = new Counters(loaded.byChat(), loaded.loadedUpTo(), System.currentTimeMillis());
+
+        locks[index].lock();
+        try {
+            List<Change> changes = owner ? loading[index].remove(userId) : null;
+            if (changes == null) {
+                // Не владелец загрузки или её отменил evict: результат отдаём, но не сохраняем
+                return reader.apply(counters);
+            }
+            // Изменения за время запроса применяем поверх: отправка, уже попавшая в запрос, отсекается по id
+            changes.forEach(change -> apply(counters, change));
+            stripe.put(userId, counters);
+            return reader.apply(counters);
+        } finally {
+            locks[index].unlock();
+        }
+    }
+
+    private Loaded query(Long userId) {
+        // Прочтения пишутся в базу с задержкой — без этого запрос вернул бы уже сброшенные счётчики
+        readWatermarks.flushUser(userId);
+
+        Map<Long, Long> byChat = new HashMap<>();
+        Map<Long, Long> loadedUpTo = new HashMap<>();
+        entityManager.createQuery("SELECT m.chat.id, COUNT(m), MAX(m.id) FROM Message m"
+                + " WHERE m.receiver.id = :userId AND m.read = false GROUP BY m.chat.id", Object[].class)
+                     .setParameter("userId", userId)
+                     .getResultList()
+                     .forEach(row -> {
+                         byChat.put((Long) row[0], ((Number) row[1]).longValue());
+                         loadedUpTo.put((Long) row[0], (Long) row[2]);
+                     });
+        return new Loaded(byChat, loadedUpTo);
+    }
+
+    private int stripeIndex(Long userId) {
+        return Math.floorMod(userId.hashCode(), STRIPES);
+    }
+}
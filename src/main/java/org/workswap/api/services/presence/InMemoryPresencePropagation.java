@@ -0,0 +1,31 @@
+package org.workswap.api.services.presence;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Доставка внутри одного процесса: для одного узла и для проверки нескольких PresenceService без брокера
+@Component
+@ConditionalOnProperty(name = "presence.propagation", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPresencePropagation implements PresencePropagation {
+
+    private final List<Consumer<PresenceEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(PresenceEvent event) {
+        listeners.forEach(listener -> listener.accept(event));
+    }
+
+    @Override
+    public void subscribe(Consumer<PresenceEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+}
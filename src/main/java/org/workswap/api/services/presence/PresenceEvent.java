@@ -0,0 +1,37 @@
+package org.workswap.api.services.presence;
+
+// Сообщение о присутствии между узлами API.
+// ONLINE/OFFLINE — пользователь появился или пропал на узле, HEARTBEAT — полный снимок узла,
+// NODE_LEFT — узел штатно остановился.
+public record PresenceEvent(
+    Type type,
+    String nodeId,
+    Long userId,
+    long[] userIds,
+    int localOnline,
+    long sentAt
+) {
+
+    public enum Type {
+        ONLINE,
+        OFFLINE,
+        HEARTBEAT,
+        NODE_LEFT
+    }
+
+    public static PresenceEvent online(String nodeId, Long userId) {
+        return new PresenceEvent(Type.ONLINE, nodeId, userId, null, 0, System.currentTimeMillis());
+    }
+
+    public static PresenceEvent offline(String nodeId, Long userId) {
+        return new PresenceEvent(Type.OFFLINE, nodeId, userId, null, 0, System.currentTimeMillis());
+    }
+
+    public static PresenceEvent heartbeat(String nodeId, long[] userIds, int localOnline) {
+        return new PresenceEvent(Type.HEARTBEAT, nodeId, null, userIds, localOnline, System.currentTimeMillis());
+    }
+
+    public static PresenceEvent nodeLeft(String nodeId) {
+        return new PresenceEvent(Type.NODE_LEFT, nodeId, null, null, 0, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,16 @@
+package org.workswap.api.services.presence;
+
+import java.util.function.Consumer;
+
+// Доставка событий присутствия на все узлы, включая отправителя: свои события узел отбрасывает сам
+public interface PresencePropagation {
+
+    void publish(PresenceEvent event);
+
+    void subscribe(Consumer<PresenceEvent> listener);
+
+    // true — события не выходят за пределы процесса, другие узлы не видны
+    default boolean isLocal() {
+        return false;
+    }
+}
@@ -0,0 +1,249 @@
+package org.workswap.api.services.presence;
+
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.workswap.core.services.analytic.OnlineCounter;
+import org.workswap.core.services.query.UserQueryService;
+import org.workswap.datasource.central.model.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Присутствие пользователей по всем узлам API.
+// Свои сессии узел считает сам, о чужих узнаёт из событий и периодических снимков;
+// узел без снимка дольше ttl считается упавшим, и его пользователи пропадают.
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final class NodeState {
+        final Set<Long> users = ConcurrentHashMap.newKeySet();
+        volatile long lastSeen;
+        volatile int localOnline;
+    }
+
+    private final PresencePropagation propagation;
+    private final OnlineCounter onlineCounter;
+    private final UserQueryService userQueryService;
+
+    private final String nodeId;
+    private final long ttlMillis;
+    private final long leaderWarmupMillis;
+    private final int expectedNodes;
+    private final long startedAt = System.currentTimeMillis();
+
+    // Свои сессии: id сессии -> пользователь и число сессий пользователя на этом узле
+    private final Map<String, Long> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> localUsers = new ConcurrentHashMap<>();
+
+    // Чужие узлы и обратный индекс пользователь -> узлы, где он подключён
+    private final Map<String, NodeState> nodes = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> remoteUsers = new ConcurrentHashMap<>();
+
+    public PresenceService(
+        PresencePropagation propagation,
+        OnlineCounter onlineCounter,
+        UserQueryService userQueryService,
+        @Value("${presence.node-id:}") String nodeId,
+        @Value("${presence.ttl-ms:30000}") long ttlMillis,
+        @Value("${presence.leader-warmup-ms:20000}") long leaderWarmupMillis,
+        @Value("${presence.expected-nodes:1}") int expectedNodes
+    ) {
+        this.propagation = propagation;
+        this.onlineCounter = onlineCounter;
+        this.userQueryService = userQueryService;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.ttlMillis = ttlMillis;
+        this.leaderWarmupMillis = leaderWarmupMillis;
+        this.expectedNodes = expectedNodes;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Доставка в памяти не видит другие узлы: каждый считал бы себя лидером и выполнял общие задачи
+        if (propagation.isLocal() && expectedNodes > 1) {
+            throw new IllegalStateException("presence.propagation=memory работает только на одном узле, а presence.expected-nodes = "
+                + expectedNodes + "; для нескольких узлов нужен presence.propagation=rabbit");
+        }
+        propagation.subscribe(this::onEvent);
+        logger.info("Присутствие: узел {}", nodeId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        propagation.publish(PresenceEvent.nodeLeft(nodeId));
+    }
+
+    public boolean isOnline(Long userId) {
+        return localUsers.containsKey(userId) || remoteUsers.containsKey(userId);
+    }
+
+    // OnlineCounter считает только свой узел; остальные узлы присылают свои значения в снимках
+    public long getClusterOnlineCount() {
+        long total = onlineCounter.getCurrent();
+        for (NodeState node : nodes.values()) {
+            total += node.localOnline;
+        }
+        return total;
+    }
+
+    // Общие для кластера действия выполняет узел с наименьшим id среди живых.
+    // Сразу после старта узел ещё не получил снимки остальных и не знает о них, поэтому лидером не считается
+    public boolean isLeader() {
+        if (!propagation.isLocal() && System.currentTimeMillis() - startedAt < leaderWarmupMillis) {
+            return false;
+        }
+        for (String other : nodes.keySet()) {
+            if (other.compareTo(nodeId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = resolveUserId(event.getUser());
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (userId == null || sessionId == null) {
+            return;
+        }
+
+        sessions.put(sessionId, userId);
+        AtomicInteger count = localUsers.computeIfAbsent(userId, id -> new AtomicInteger());
+        if (count.incrementAndGet() == 1) {
+            propagation.publish(PresenceEvent.online(nodeId, userId));
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long userId = sessions.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+
+        // Последняя сессия пользователя на узле: убираем запись атомарно относительно новых подключений
+        boolean[] gone = new boolean[1];
+        localUsers.computeIfPresent(userId, (id, count) -> {
+            if (count.decrementAndGet() <= 0) {
+                gone[0] = true;
+                return null;
+            }
+            return count;
+        });
+
+        if (gone[0]) {
+            propagation.publish(PresenceEvent.offline(nodeId, userId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${presence.heartbeat-ms:10000}")
+    public void heartbeat() {
+        long[] userIds = localUsers.keySet().stream().mapToLong(Long::longValue).toArray();
+        propagation.publish(PresenceEvent.heartbeat(nodeId, userIds, (int) onlineCounter.getCurrent()));
+
+        long now = System.currentTimeMillis();
+        nodes.forEach((id, node) -> {
+            if (now - node.lastSeen > ttlMillis) {
+                logger.warn("Узел {} не присылал снимок присутствия {} мс, убираем его пользователей", id, now - node.lastSeen);
+                removeNode(id);
+            }
+        });
+    }
+
+    private void onEvent(PresenceEvent event) {
+        if (nodeId.equals(event.nodeId())) {
+            return;
+        }
+
+        switch (event.type()) {
+            case ONLINE -> addRemote(node(event.nodeId()), event.nodeId(), event.userId());
+            case OFFLINE -> removeRemote(node(event.nodeId()), event.nodeId(), event.userId());
+            case HEARTBEAT -> applySnapshot(event);
+            case NODE_LEFT -> removeNode(event.nodeId());
+        }
+    }
+
+    private NodeState node(String id) {
+        NodeState node = nodes.computeIfAbsent(id, n -> new NodeState());
+        node.lastSeen = System.currentTimeMillis();
+        return node;
+    }
+
+    private synchronized void applySnapshot(PresenceEvent event) {
+        NodeState node = node(event.nodeId());
+        node.localOnline = event.localOnline();
+
+        Set<Long> snapshot = new HashSet<>();
+        for (long userId : event.userIds()) {
+            snapshot.add(userId);
+        }
+
+        // Снимок исправляет потерянные ONLINE/OFFLINE
+        for (Long userId : node.users) {
+            if (!snapshot.contains(userId)) {
+                removeRemote(node, event.nodeId(), userId);
+            }
+        }
+        for (Long userId : snapshot) {
+            addRemote(node, event.nodeId(), userId);
+        }
+    }
+
+    private synchronized void addRemote(NodeState node, String id, Long userId) {
+        if (node.users.add(userId)) {
+            remoteUsers.computeIfAbsent(userId, u -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private synchronized void removeRemote(NodeState node, String id, Long userId) {
+        if (node.users.remove(userId)) {
+            remoteUsers.computeIfPresent(userId, (u, nodeIds) -> {
+                nodeIds.remove(id);
+                return nodeIds.isEmpty() ? null : nodeIds;
+            });
+        }
+    }
+
+    private synchronized void removeNode(String id) {
+        NodeState node = nodes.remove(id);
+        if (node == null) {
+            return;
+        }
+        for (Long userId : node.users) {
+            remoteUsers.computeIfPresent(userId, (u, nodeIds) -> {
+                nodeIds.remove(id);
+                return nodeIds.isEmpty() ? null : nodeIds;
+            });
+        }
+    }
+
+    private Long resolveUserId(Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        User user = userQueryService.findUser(principal.getName());
+        return user != null ? user.getId() : null;
+    }
+}
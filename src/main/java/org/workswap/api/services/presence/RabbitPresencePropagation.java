@@ -0,0 +1,93 @@
+package org.workswap.api.services.presence;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Рассылка через fanout-обменник: у каждого узла своя временная очередь, которая исчезает вместе с ним
+@Component
+@ConditionalOnProperty(name = "presence.propagation", havingValue = "rabbit")
+public class RabbitPresencePropagation implements PresencePropagation, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RabbitPresencePropagation.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+    private final String exchange;
+
+    private SimpleMessageListenerContainer container;
+
+    public RabbitPresencePropagation(
+        RabbitTemplate rabbitTemplate,
+        ConnectionFactory connectionFactory,
+        ObjectMapper objectMapper,
+        @Value("${presence.rabbit.exchange:presence.fanout}") String exchange
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.connectionFactory = connectionFactory;
+        this.objectMapper = objectMapper;
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void publish(PresenceEvent event) {
+        try {
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            // Присутствие быстро устаревает, хранить его в брокере дольше нескольких секунд незачем
+            properties.setExpiration("10000");
+            rabbitTemplate.send(exchange, "", new Message(objectMapper.writeValueAsBytes(event), properties));
+        } catch (Exception e) {
+            logger.warn("Не удалось отправить событие присутствия {}: {}", event.type(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<PresenceEvent> listener) {
+        if (container != null) {
+            throw new IllegalStateException("Подписчик присутствия уже зарегистрирован");
+        }
+
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+        FanoutExchange fanout = new FanoutExchange(exchange, true, false);
+        AnonymousQueue queue = new AnonymousQueue();
+        admin.declareExchange(fanout);
+        admin.declareQueue(queue);
+        admin.declareBinding(BindingBuilder.bind(queue).to(fanout));
+
+        container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(queue);
+        container.setMessageListener(message -> {
+            try {
+                listener.accept(objectMapper.readValue(message.getBody(), PresenceEvent.class));
+            } catch (Exception e) {
+                logger.warn("Не удалось обработать событие присутствия: {}", e.getMessage());
+            }
+        });
+        container.start();
+    }
+
+    @Override
+    public void destroy() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
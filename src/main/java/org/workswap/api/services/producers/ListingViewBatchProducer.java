@@ -0,0 +1,49 @@
+package org.workswap.api.services.producers;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+// Отправка агрегированных просмотров одной пачкой вместо сообщения на каждый просмотр
+@Component
+@RequiredArgsConstructor
+public class ListingViewBatchProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingViewBatchProducer.class);
+
+    public record ListingViewDelta(Long userId, Long listingId, long views) {}
+
+    public record ListingViewBatch(List<ListingViewDelta> deltas, long fromMillis, long toMillis) {}
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${listing-views.aggregation.enabled:false}")
+    private boolean enabled;
+
+    // Обменник и ключ задаёт потребитель статистики, значений по умолчанию нет намеренно
+    @Value("${listing-views.batch.exchange:}")
+    private String exchange;
+
+    @Value("${listing-views.batch.routing-key:}")
+    private String routingKey;
+
+    @PostConstruct
+    public void validate() {
+        if (enabled && (exchange.isBlank() || routingKey.isBlank())) {
+            throw new IllegalStateException(
+                "listing-views.batch.exchange и routing-key обязательны при включённой агрегации просмотров");
+        }
+    }
+
+    public void sendBatch(ListingViewBatch batch) {
+        rabbitTemplate.convertAndSend(exchange, routingKey, batch);
+        logger.debug("Отправлена пачка просмотров: {} объявлений", batch.deltas().size());
+    }
+}
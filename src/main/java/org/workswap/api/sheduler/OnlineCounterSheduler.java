@@ -6,7 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.workswap.common.dto.stat.OnlineStatSnapshotDTO;
-import org.workswap.core.services.analytic.OnlineCounter;
+import org.workswap.api.services.presence.PresenceService;
 import org.workswap.core.services.producers.OnlineStatProducer;
 
 import lombok.RequiredArgsConstructor;
@@ -15,7 +15,7 @@ import lombok.RequiredArgsConstructor;
 @Component
 public class OnlineCounterSheduler {
     
-    private final OnlineCounter onlineCounter;
+    private final PresenceService presenceService;
     private final OnlineStatProducer onlineStatProducer;
 
     @Value("${isTest}")
@@ -24,9 +24,10 @@ public class OnlineCounterSheduler {
     @Scheduled(fixedRate = 15000)
     public void saveOnlineAnalytic() {
 
-        if (isTest == false) {
+        // Снимок по всему кластеру отправляет один узел, иначе онлайн посчитается несколько раз
+        if (isTest == false && presenceService.isLeader()) {
             OnlineStatSnapshotDTO dto = new OnlineStatSnapshotDTO(
-                onlineCounter.getCurrent(),
+                (int) presenceService.getClusterOnlineCount(),
                 LocalDateTime.now()
             );
 
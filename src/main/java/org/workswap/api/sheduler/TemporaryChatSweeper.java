@@ -0,0 +1,56 @@
+package org.workswap.api.sheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.workswap.api.services.components.TemporaryChatCleaner;
+import org.workswap.api.services.presence.PresenceService;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Component
+public class TemporaryChatSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemporaryChatSweeper.class);
+
+    private final TemporaryChatCleaner temporaryChatCleaner;
+    private final PresenceService presenceService;
+
+    @Value("${chat.temporary-sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.temporary-sweeper.max-batches:20}")
+    private int maxBatches;
+
+    @Value("${chat.temporary-sweeper.interval-ms:3600000}")
+    private long intervalMillis;
+
+    @Scheduled(fixedDelayString = "${chat.temporary-sweeper.interval-ms:3600000}")
+    public void sweep() {
+        if (!presenceService.isLeader()) {
+            return;
+        }
+
+        // Чат считается брошенным, если пустым пережил целый интервал
+        long boundary = temporaryChatCleaner.idBoundary(intervalMillis);
+        if (boundary < 0) {
+            return;
+        }
+
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int deleted = temporaryChatCleaner.deleteEmptyBatch(boundary, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            logger.info("Удалено {} брошенных временных диалогов", total);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.workswap.api.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.servlet.http.Cookie;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.workswap.core.services.ChatService;
+import org.workswap.core.services.command.UserCommandService;
+import org.workswap.core.services.security.AuthCookiesService;
+import org.workswap.datasource.central.model.User;
+import org.workswap.datasource.central.model.chat.Chat;
+
+import lombok.RequiredArgsConstructor;
+
+// Пользователи и чаты для прогона: по паре пользователей на чат, токены выдаёт тот же сервис,
+// что и при обычном входе. Результат — файл пар "chatId,tokenA,tokenB" для ChatLoadTest
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class LoadTestSeeder implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestSeeder.class);
+
+    private final UserCommandService userCommandService;
+    private final ChatService chatService;
+    private final AuthCookiesService authCookiesService;
+
+    @Value("${loadtest.pairs:100}")
+    private int pairs;
+
+    @Value("${loadtest.pairs-file:loadtest/pairs.csv}")
+    private String pairsFile;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> lines = new ArrayList<>(pairs);
+        for (int i = 0; i < pairs; i++) {
+            User first = userCommandService.createTempUser();
+            User second = userCommandService.createTempUser();
+            Chat chat = chatService.getOrCreateChat(Set.of(first, second), null);
+            lines.add(chat.getId() + "," + accessToken(first) + "," + accessToken(second));
+        }
+
+        Path path = Path.of(pairsFile);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, lines);
+        logger.info("Создано {} чатов для нагрузочного прогона, пары записаны в {}", pairs, path.toAbsolutePath());
+    }
+
+    private String accessToken(User user) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        authCookiesService.setAuthCookies(response, user);
+        Cookie cookie = response.getCookie("accessToken");
+        if (cookie == null) {
+            throw new IllegalStateException("AuthCookiesService не выдал accessToken для пользователя " + user.getId());
+        }
+        return cookie.getValue();
+    }
+}
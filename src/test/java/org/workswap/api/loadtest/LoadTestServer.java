@@ -0,0 +1,49 @@
+package org.workswap.api.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.workswap.api.WorkSwapApiApplication;
+
+import com.sun.net.httpserver.HttpServer;
+
+// API для нагрузочного прогона без сети: база H2 в памяти, брокер и облако заглушены,
+// пользователи и чаты создаются при старте, пары для loadtest пишутся в файл.
+// Запуск из корня проекта:
+// mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.workswap.api.loadtest.LoadTestServer
+//        -Dexec.args="--loadtest.pairs=200 --loadtest.pairs-file=loadtest/pairs.csv"
+public class LoadTestServer {
+
+    public static void main(String[] args) throws IOException {
+        HttpServer cloud = startCloudStub();
+
+        // Адрес облака передаётся аргументом: свойства билдера слабее config/main.yml
+        String[] withCloud = Arrays.copyOf(args, args.length + 1);
+        withCloud[args.length] = "--cloud.url=http://127.0.0.1:" + cloud.getAddress().getPort();
+
+        new SpringApplicationBuilder(WorkSwapApiApplication.class)
+            .profiles("loadtest")
+            .properties("spring.config.name=loadtest")
+            .run(withCloud);
+    }
+
+    // Облако отвечает на любую загрузку фиксированным адресом картинки; слушает только loopback
+    private static HttpServer startCloudStub() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{\"url\":\"/loadtest/image.webp\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
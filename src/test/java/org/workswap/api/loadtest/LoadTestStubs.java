@@ -0,0 +1,21 @@
+package org.workswap.api.loadtest;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Заглушка RabbitMQ: автонастройка Spring не создаёт свою фабрику соединений, если она уже есть,
+// а RabbitTemplate и RabbitAdmin работают с каналами-пустышками — публикации никуда не уходят
+@Configuration
+@Profile("loadtest")
+public class LoadTestStubs {
+
+    @Bean
+    public ConnectionFactory rabbitConnectionFactory() {
+        return mock(ConnectionFactory.class, RETURNS_DEEP_STUBS);
+    }
+}
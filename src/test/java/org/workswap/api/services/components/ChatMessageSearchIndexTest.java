@@ -0,0 +1,73 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChatMessageSearchIndexTest {
+
+    // Сообщения пользователя «в базе»: id и текст
+    private List<Object[]> stored;
+    private AtomicInteger loads;
+    private AtomicBoolean failLoad;
+    private ChatMessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        stored = new ArrayList<>();
+        loads = new AtomicInteger();
+        failLoad = new AtomicBoolean();
+        index = new ChatMessageSearchIndex(100, 1800) {
+            @Override
+            List<Object[]> loadPage(Long userId, long after, int limit) {
+                loads.incrementAndGet();
+                if (failLoad.get()) {
+                    throw new IllegalStateException("database down");
+                }
+                return stored.stream().filter(row -> (Long) row[0] > after).limit(limit).toList();
+            }
+        };
+    }
+
+    @Test
+    void messagesAddedAfterLoadAreFound() {
+        stored.add(new Object[] { 1L, "велосипед горный" });
+
+        assertThat(index.search(7L, "велосипед", 10)).containsExactly(1L);
+
+        index.messageAdded(2L, "ещё один велосипед", 7L, 8L);
+        assertThat(index.search(7L, "велосипед", 10)).containsExactly(2L, 1L);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void messageForUsersWithoutIndexIgnored() {
+        index.messageAdded(1L, "велосипед", 7L, 8L);
+
+        assertThat(index.size()).isZero();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void failedLoadDropsIndexAndNextSearchRetries() {
+        failLoad.set(true);
+        assertThatThrownBy(() -> index.search(7L, "велосипед", 10)).isInstanceOf(IllegalStateException.class);
+        assertThat(index.size()).isZero();
+
+        // Без индекса отправка не копится в pending недостроенного индекса
+        index.messageAdded(1L, "велосипед", 7L, 8L);
+        assertThat(index.size()).isZero();
+
+        failLoad.set(false);
+        stored.add(new Object[] { 1L, "велосипед" });
+        assertThat(index.search(7L, "велосипед", 10)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
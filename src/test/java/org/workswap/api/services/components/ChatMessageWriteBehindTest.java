@@ -0,0 +1,184 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+class ChatMessageWriteBehindTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private ChatMessageWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:write-behind-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE message (id BIGINT PRIMARY KEY, chat_id BIGINT NOT NULL,"
+            + " sender_id BIGINT NOT NULL, receiver_id BIGINT NOT NULL, text VARCHAR(20),"
+            + " sent_at TIMESTAMP NOT NULL, is_read BOOLEAN NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    private ChatMessageWriteBehind writeBehind(int nodeIndex) {
+        return new ChatMessageWriteBehind(jdbcTemplate, transactionManager, null,
+                                          true, 100, 50, 10, 500, 2, nodeIndex) {
+            @Override
+            String tableName() {
+                return "message";
+            }
+
+            @Override
+            String resolveInsertSql() {
+                return "INSERT INTO message (id, chat_id, sender_id, receiver_id, text, sent_at, is_read)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+            }
+        };
+    }
+
+    @Test
+    void idsGrowAndCarryNodeIndex() {
+        writeBehind = writeBehind(5);
+
+        long previous = 0;
+        for (int i = 0; i < 2000; i++) {
+            long id = writeBehind.nextId();
+            assertThat(id).isGreaterThan(previous);
+            assertThat((id >>> ChatMessageWriteBehind.SEQUENCE_BITS) & (ChatMessageWriteBehind.MAX_NODES - 1)).isEqualTo(5);
+            assertThat(id).isLessThan(1L << 53);
+            previous = id;
+        }
+    }
+
+    @Test
+    void idsFromDifferentNodesOrderedByTime() throws InterruptedException {
+        ChatMessageWriteBehind first = writeBehind(31);
+        ChatMessageWriteBehind second = writeBehind(0);
+
+        long earlier = first.nextId();
+        Thread.sleep(2);
+        long later = second.nextId();
+
+        assertThat(later).isGreaterThan(earlier);
+    }
+
+    @Test
+    void startContinuesAfterExistingIds() {
+        long future = (System.currentTimeMillis() - ChatMessageWriteBehind.EPOCH_MILLIS + 60_000)
+            << (ChatMessageWriteBehind.NODE_BITS + ChatMessageWriteBehind.SEQUENCE_BITS);
+        jdbcTemplate.update("INSERT INTO message VALUES (?, 1, 1, 2, 'x', CURRENT_TIMESTAMP, FALSE)", future);
+
+        writeBehind = writeBehind(0);
+        writeBehind.start();
+
+        assertThat(writeBehind.nextId()).isGreaterThan(future);
+    }
+
+    @Test
+    void writesBatchAndRunsCallbacksOffWriterThread() throws InterruptedException {
+        writeBehind = writeBehind(1);
+        writeBehind.start();
+
+        CountDownLatch done = new CountDownLatch(3);
+        Map<Long, String> threads = new ConcurrentHashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(writeBehind.submit(1L, 10L, 20L, "hello " + i, id -> {
+                threads.put(id, Thread.currentThread().getName());
+                done.countDown();
+            }).id());
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(threads.keySet()).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(threads.values()).doesNotContain("chat-write-behind");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message WHERE is_read = FALSE", Long.class))
+            .isEqualTo(3L);
+    }
+
+    @Test
+    void badRowDeadLetteredOthersWritten() throws InterruptedException {
+        writeBehind = writeBehind(0);
+        writeBehind.start();
+
+        CountDownLatch done = new CountDownLatch(2);
+        List<Long> persisted = new ArrayList<>();
+        List<ChatMessageWriteBehind.PendingMessage> messages = new ArrayList<>();
+        for (String text : List.of("ok", "слишком длинный текст для столбца", "ok too")) {
+            messages.add(new ChatMessageWriteBehind.PendingMessage(
+                writeBehind.nextId(), 1L, 10L, 20L, text, LocalDateTime.now(), id -> {
+                    synchronized (persisted) {
+                        persisted.add(id);
+                    }
+                    done.countDown();
+                }));
+        }
+
+        writeBehind.persist(messages);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(persisted).containsExactlyInAnyOrder(messages.get(0).id(), messages.get(2).id());
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM message ORDER BY id", Long.class))
+            .containsExactly(messages.get(0).id(), messages.get(2).id());
+        assertThat(writeBehind.getStats()).containsEntry("deadLettered", 1L);
+    }
+
+    @Test
+    void syncInsertAndBufferedFlushShareIdSource() throws InterruptedException {
+        writeBehind = writeBehind(3);
+        writeBehind.start();
+
+        ChatMessageWriteBehind.PendingMessage first = writeBehind.insertNow(1L, 10L, 20L, "first");
+
+        CountDownLatch done = new CountDownLatch(2);
+        long second = writeBehind.submit(1L, 20L, 10L, "second", id -> done.countDown()).id();
+        long third = writeBehind.insertNow(1L, 10L, 20L, "third").id();
+        long fourth = writeBehind.submit(1L, 20L, 10L, "fourth", id -> done.countDown()).id();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM message ORDER BY id", Long.class))
+            .containsExactly(first.id(), second, third, fourth);
+        assertThat(writeBehind.getStats()).containsEntry("deadLettered", 0L).containsEntry("persisted", 4L);
+    }
+
+    @Test
+    void onlyConnectionFailuresRetriedForever() {
+        assertThat(ChatMessageWriteBehind.isUnavailable(new CannotCreateTransactionException("no connection"))).isTrue();
+        assertThat(ChatMessageWriteBehind.isUnavailable(new CannotGetJdbcConnectionException("pool", new SQLTransientConnectionException()))).isTrue();
+        assertThat(ChatMessageWriteBehind.isUnavailable(new TransactionSystemException("commit", new SQLNonTransientConnectionException()))).isTrue();
+
+        assertThat(ChatMessageWriteBehind.isUnavailable(new DuplicateKeyException("duplicate"))).isFalse();
+        assertThat(ChatMessageWriteBehind.isUnavailable(new TransactionSystemException("commit",
+            new SQLIntegrityConstraintViolationException("duplicate")))).isFalse();
+        assertThat(ChatMessageWriteBehind.isUnavailable(new UnexpectedRollbackException("rolled back"))).isFalse();
+    }
+}
@@ -0,0 +1,121 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class FavoriteListingsCacheTest {
+
+    private CacheInvalidationBus bus;
+    private List<Long> stored;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        bus = mock(CacheInvalidationBus.class);
+        stored = new ArrayList<>(List.of(1L, 2L));
+        loads = new AtomicInteger();
+    }
+
+    private FavoriteListingsCache cache(long ttlSeconds) {
+        return new FavoriteListingsCache(bus, 100, ttlSeconds) {
+            @Override
+            List<Long> loadIds(Long userId) {
+                loads.incrementAndGet();
+                return List.copyOf(stored);
+            }
+        };
+    }
+
+    @Test
+    void loadsOncePerUserWithinTtl() {
+        FavoriteListingsCache cache = cache(300);
+
+        assertThat(cache.isFavorite(7L, 1L)).isTrue();
+        assertThat(cache.isFavorite(7L, 3L)).isFalse();
+        assertThat(cache.filterFavorites(7L, List.of(3L, 2L, 1L))).containsExactly(2L, 1L);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void reloadsAfterTtl() {
+        FavoriteListingsCache cache = cache(0);
+
+        cache.isFavorite(7L, 1L);
+        stored.add(3L);
+
+        assertThat(cache.isFavorite(7L, 3L)).isTrue();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void setFavoriteIsIdempotent() {
+        FavoriteListingsCache cache = cache(300);
+        cache.isFavorite(7L, 1L);
+
+        cache.setFavorite(7L, 3L, true);
+        cache.setFavorite(7L, 3L, true);
+        assertThat(cache.isFavorite(7L, 3L)).isTrue();
+
+        cache.setFavorite(7L, 1L, false);
+        cache.setFavorite(7L, 1L, false);
+        assertThat(cache.isFavorite(7L, 1L)).isFalse();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadRacingWithChangeIsNotCached() {
+        FavoriteListingsCache[] holder = new FavoriteListingsCache[1];
+        holder[0] = new FavoriteListingsCache(bus, 100, 300) {
+            @Override
+            List<Long> loadIds(Long userId) {
+                List<Long> snapshot = List.copyOf(stored);
+                if (loads.incrementAndGet() == 1) {
+                    // Пока шёл запрос, пользователь добавил объявление 3
+                    stored.add(3L);
+                    holder[0].setFavorite(userId, 3L, true);
+                }
+                return snapshot;
+            }
+        };
+        FavoriteListingsCache cache = holder[0];
+
+        assertThat(cache.isFavorite(7L, 3L)).isFalse();
+        assertThat(cache.isFavorite(7L, 3L)).isTrue();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void changesArePublishedAndRemoteInvalidationEvicts() {
+        FavoriteListingsCache cache = cache(300);
+        ArgumentCaptor<LongConsumer> handler = ArgumentCaptor.forClass(LongConsumer.class);
+        verify(bus).subscribe(eq("favorites"), handler.capture());
+
+        cache.isFavorite(7L, 1L);
+        cache.setFavorite(7L, 1L, false);
+        verify(bus).publish("favorites", 7L);
+
+        // Другой узел изменил избранное: множество загружается заново
+        stored.add(5L);
+        handler.getValue().accept(7L);
+        assertThat(cache.isFavorite(7L, 5L)).isTrue();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void subscribesOnCreation() {
+        cache(300);
+        verify(bus).subscribe(eq("favorites"), any());
+    }
+}
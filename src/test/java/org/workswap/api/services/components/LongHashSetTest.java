@@ -0,0 +1,91 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LongHashSetTest {
+
+    @Test
+    void addContainsAndRemove() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+        assertThat(set.contains(42)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+
+        assertThat(set.remove(42)).isTrue();
+        assertThat(set.remove(42)).isFalse();
+        assertThat(set.contains(42)).isFalse();
+        assertThat(set.size()).isZero();
+    }
+
+    @Test
+    void zeroIsStoredSeparatelyFromEmptySlots() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.add(0)).isTrue();
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.toArray()).containsExactly(0L);
+
+        assertThat(set.remove(0)).isTrue();
+        assertThat(set.size()).isZero();
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        LongHashSet set = new LongHashSet(2);
+        for (long i = 1; i <= 10_000; i++) {
+            set.add(i);
+        }
+
+        assertThat(set.size()).isEqualTo(10_000);
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.contains(i)).isTrue();
+        }
+        assertThat(set.contains(10_001)).isFalse();
+    }
+
+    @Test
+    void removalKeepsRestOfClusterReachable() {
+        LongHashSet set = new LongHashSet();
+        // Кратные ёмкости значения склонны попадать в один кластер
+        for (long i = 1; i <= 64; i++) {
+            set.add(i * 1024);
+        }
+        for (long i = 1; i <= 64; i += 2) {
+            set.remove(i * 1024);
+        }
+
+        for (long i = 1; i <= 64; i++) {
+            assertThat(set.contains(i * 1024)).isEqualTo(i % 2 == 0);
+        }
+        assertThat(set.size()).isEqualTo(32);
+    }
+
+    @Test
+    void behavesLikeHashSetUnderRandomOperations() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextInt(2_000) - 1_000;
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(Arrays.stream(set.toArray()).boxed().toList()).containsExactlyInAnyOrderElementsOf(expected);
+    }
+}
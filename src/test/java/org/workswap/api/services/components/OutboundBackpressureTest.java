@@ -0,0 +1,155 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class OutboundBackpressureTest {
+
+    private static final String SESSION = "s1";
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final MessageHandler handler = mock(MessageHandler.class);
+
+    private WebSocketSession socket;
+    private OutboundBackpressure backpressure;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        backpressure = new OutboundBackpressure(new ObjectMapper(), 2, 4);
+        socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn(SESSION);
+        when(socket.isOpen()).thenReturn(true);
+        backpressure.sessionTracker().decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(socket);
+    }
+
+    private Message<byte[]> frame(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    // Путь кадра через канал: постановка в очередь, затем отправка в сокет; null — кадр пропущен
+    private Message<?> deliver(Message<?> queued) {
+        Message<?> handled = backpressure.beforeHandle(queued, channel, handler);
+        if (handled != null) {
+            backpressure.afterMessageHandled(handled, channel, handler, null);
+        }
+        return handled;
+    }
+
+    @Test
+    void newerChatFrameReplacesQueuedOne() {
+        Message<?> older = backpressure.preSend(frame("/user/queue/chats", "{\"id\":7,\"unread\":1}"), channel);
+        Message<?> newer = backpressure.preSend(frame("/user/queue/chats", "{\"id\":7,\"unread\":2}"), channel);
+
+        assertThat(deliver(older)).isNull();
+        assertThat(deliver(newer)).isNotNull();
+        assertThat(backpressure.getStats()).containsEntry("merged", 1L).containsEntry("pending", 0L);
+    }
+
+    @Test
+    void framesOfDifferentChatsNotMerged() {
+        Message<?> first = backpressure.preSend(frame("/user/queue/chats", "{\"id\":7}"), channel);
+        Message<?> second = backpressure.preSend(frame("/user/queue/chats", "{\"id\":8}"), channel);
+
+        assertThat(deliver(first)).isNotNull();
+        assertThat(deliver(second)).isNotNull();
+    }
+
+    @Test
+    void fullPagesMergeDeltaPagesDoNot() {
+        Message<?> full = backpressure.preSend(frame("/user/queue/chats.page", "{\"page\":0,\"version\":10}"), channel);
+        Message<?> delta = backpressure.preSend(
+            frame("/user/queue/chats.page", "{\"page\":0,\"version\":12,\"unreadCounts\":{}}"), channel);
+        Message<?> newerFull = backpressure.preSend(frame("/user/queue/chats.page", "{\"page\":0,\"version\":12}"), channel);
+
+        assertThat(deliver(full)).isNull();
+        assertThat(deliver(delta)).isNotNull();
+        assertThat(deliver(newerFull)).isNotNull();
+    }
+
+    @Test
+    void newerDeltaOfChatReplacesQueuedOneKeepingItsFields() throws Exception {
+        Message<?> older = backpressure.preSend(frame("/user/queue/chats.delta",
+            "[{\"chatId\":7,\"lastMessage\":{\"id\":1},\"unreadCount\":1},{\"chatId\":8,\"unreadCount\":3}]"), channel);
+        Message<?> newer = backpressure.preSend(frame("/user/queue/chats.delta", "[{\"chatId\":7,\"unreadCount\":0}]"), channel);
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.readTree((byte[]) deliver(older).getPayload()))
+            .isEqualTo(mapper.readTree("[{\"chatId\":8,\"unreadCount\":3}]"));
+        assertThat(mapper.readTree((byte[]) deliver(newer).getPayload()))
+            .isEqualTo(mapper.readTree("[{\"chatId\":7,\"unreadCount\":0,\"lastMessage\":{\"id\":1}}]"));
+        assertThat(backpressure.getStats()).containsEntry("merged", 1L).containsEntry("pending", 0L);
+    }
+
+    @Test
+    void deltaFrameFullySupersededSkipped() {
+        Message<?> older = backpressure.preSend(frame("/user/queue/chats.delta", "[{\"chatId\":7,\"unreadCount\":1}]"), channel);
+        Message<?> newer = backpressure.preSend(frame("/user/queue/chats.delta", "[{\"chatId\":7,\"unreadCount\":2}]"), channel);
+
+        assertThat(deliver(older)).isNull();
+        assertThat(deliver(newer)).isNotNull();
+        // Дельты не отбрасываются и при заполненной очереди
+        backpressure.preSend(frame("/topic/messages/1", "{\"id\":1}"), channel);
+        backpressure.preSend(frame("/topic/messages/1", "{\"id\":2}"), channel);
+        assertThat(backpressure.preSend(frame("/user/queue/chats.delta", "[{\"chatId\":7}]"), channel)).isNotNull();
+    }
+
+    @Test
+    void mergeKeyCarriedInHeader() {
+        Message<?> queued = backpressure.preSend(frame("/user/queue/chats", "{\"id\":7}"), channel);
+
+        assertThat(queued.getHeaders().get(OutboundBackpressure.MERGE_KEY_HEADER)).isEqualTo("/user/queue/chats:7");
+        assertThat(SimpMessageHeaderAccessor.wrap(queued).toNativeHeaderMap()).doesNotContainKey(OutboundBackpressure.MERGE_KEY_HEADER);
+    }
+
+    @Test
+    void notificationsDroppedAboveSoftLimitMessagesKept() {
+        backpressure.preSend(frame("/topic/messages/1", "{\"id\":1}"), channel);
+        backpressure.preSend(frame("/topic/messages/1", "{\"id\":2}"), channel);
+
+        assertThat(backpressure.preSend(frame("/user/queue/notifications", "{}"), channel)).isNull();
+        assertThat(backpressure.preSend(frame("/topic/messages/1", "{\"id\":3}"), channel)).isNotNull();
+        assertThat(backpressure.getStats()).containsEntry("dropped", 1L).containsEntry("pending", 3L);
+    }
+
+    @Test
+    void slowConsumerClosedAtHardLimit() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThat(backpressure.preSend(frame("/topic/messages/1", "{\"id\":" + i + "}"), channel)).isNotNull();
+        }
+
+        assertThat(backpressure.preSend(frame("/topic/messages/1", "{\"id\":5}"), channel)).isNull();
+        verify(socket).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void failedSendReleasesPending() throws Exception {
+        Message<?> queued = backpressure.preSend(frame("/topic/messages/1", "{\"id\":1}"), channel);
+        backpressure.afterSendCompletion(queued, channel, false, null);
+
+        assertThat(backpressure.getStats()).containsEntry("pending", 0L);
+        verify(socket, never()).close(any());
+    }
+}
@@ -0,0 +1,193 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ReadWatermarksTest {
+
+    // Последний id по чату «в базе»
+    private Map<Long, Long> lastIds;
+    // Сохранённые отметки: ключ — (чат, пользователь), значение — последний сохранённый id
+    private Map<ReadWatermarks.Key, Long> saved;
+    private AtomicInteger queries;
+    private AtomicBoolean failSave;
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = mock(CacheInvalidationBus.class);
+        lastIds = new ConcurrentHashMap<>();
+        saved = new ConcurrentHashMap<>();
+        queries = new AtomicInteger();
+        failSave = new AtomicBoolean();
+    }
+
+    private ReadWatermarks watermarks(int maxEntries) {
+        return new ReadWatermarks(bus, mock(PlatformTransactionManager.class), maxEntries) {
+            @Override
+            Long queryLastMessageId(Long chatId) {
+                queries.incrementAndGet();
+                return lastIds.get(chatId);
+            }
+
+            @Override
+            void save(List<Map.Entry<Key, Long>> batch) {
+                if (failSave.get()) {
+                    throw new IllegalStateException("database down");
+                }
+                batch.forEach(entry -> saved.merge(entry.getKey(), entry.getValue(), Math::max));
+            }
+        };
+    }
+
+    private static ReadWatermarks.Key key(long chatId, long userId) {
+        return new ReadWatermarks.Key(chatId, userId);
+    }
+
+    @Test
+    void repeatedReadDoesNotAdvance() {
+        ReadWatermarks watermarks = watermarks(100);
+        lastIds.put(1L, 10L);
+
+        assertThat(watermarks.markRead(1L, 7L)).isTrue();
+        assertThat(watermarks.markRead(1L, 7L)).isFalse();
+
+        watermarks.messageSent(1L, 11L);
+        assertThat(watermarks.markRead(1L, 7L)).isTrue();
+        // Только первая загрузка: повторное прочтение базу не спрашивает
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void sentMessageCachedWithoutQuery() {
+        ReadWatermarks watermarks = watermarks(100);
+
+        watermarks.messageSent(1L, 11L);
+        verify(bus).publish("chat.last-message", 1L);
+
+        assertThat(watermarks.markRead(1L, 7L)).isTrue();
+        assertThat(queries).hasValue(0);
+    }
+
+    @Test
+    void messageFromOtherNodeResetsCachedId() {
+        ReadWatermarks watermarks = watermarks(100);
+        ArgumentCaptor<LongConsumer> handler = ArgumentCaptor.forClass(LongConsumer.class);
+        verify(bus).subscribe(eq("chat.last-message"), handler.capture());
+        lastIds.put(1L, 10L);
+        watermarks.markRead(1L, 7L);
+
+        // Сообщение записано другим узлом: здесь пришла только инвалидация
+        lastIds.put(1L, 12L);
+        handler.getValue().accept(1L);
+
+        assertThat(watermarks.markRead(1L, 7L)).isTrue();
+        watermarks.flush();
+        assertThat(saved).containsEntry(key(1L, 7L), 12L);
+    }
+
+    @Test
+    void emptyChatNotMarked() {
+        ReadWatermarks watermarks = watermarks(100);
+
+        assertThat(watermarks.markRead(1L, 7L)).isFalse();
+        watermarks.flush();
+        assertThat(saved).isEmpty();
+    }
+
+    @Test
+    void flushUserSavesOnlyThatUser() {
+        ReadWatermarks watermarks = watermarks(100);
+        lastIds.put(1L, 10L);
+        watermarks.markRead(1L, 7L);
+        watermarks.markRead(1L, 8L);
+
+        watermarks.flushUser(7L);
+        assertThat(saved).containsOnlyKeys(key(1L, 7L));
+
+        watermarks.flush();
+        assertThat(saved).containsOnlyKeys(key(1L, 7L), key(1L, 8L));
+    }
+
+    @Test
+    void failedFlushRetried() {
+        ReadWatermarks watermarks = watermarks(0);
+        lastIds.put(1L, 10L);
+        watermarks.markRead(1L, 7L);
+
+        failSave.set(true);
+        watermarks.flush();
+        assertThat(saved).isEmpty();
+
+        failSave.set(false);
+        watermarks.flush();
+        assertThat(saved).containsEntry(key(1L, 7L), 10L);
+    }
+
+    @Test
+    void trimDuringReadsLosesNothing() throws Exception {
+        // maxEntries = 0: каждый flush чистит сохранённые отметки, пока читатели продвигают новые
+        ReadWatermarks watermarks = watermarks(0);
+        int chats = 50;
+        int rounds = 200;
+        for (long chat = 0; chat < chats; chat++) {
+            lastIds.put(chat, 1L);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(2);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int reader = 0; reader < 2; reader++) {
+                long userId = reader;
+                futures.add(executor.submit(() -> {
+                    try {
+                        for (long round = 1; round <= rounds; round++) {
+                            for (long chat = 0; chat < chats; chat++) {
+                                lastIds.merge(chat, round, Math::max);
+                                watermarks.messageSent(chat, round);
+                                watermarks.markRead(chat, userId);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                while (done.getCount() > 0) {
+                    watermarks.flush();
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        watermarks.flush();
+
+        for (long chat = 0; chat < chats; chat++) {
+            assertThat(saved).containsEntry(key(chat, 0L), (long) rounds).containsEntry(key(chat, 1L), (long) rounds);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.workswap.api.services.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SearchTokenizerTest {
+
+    @Test
+    void splitsOnNonLetterCharactersAndLowercases() {
+        assertThat(SearchTokenizer.tokenize("iPhone 15, PRO-max!", "en"))
+            .containsExactly("iphone", "15", "pro", "max");
+    }
+
+    @Test
+    void dropsStopWordsOfTheGivenLanguageOnly() {
+        assertThat(SearchTokenizer.tokenize("ремонт и покраска", "ru")).containsExactly("ремонт", "покраска");
+        assertThat(SearchTokenizer.tokenize("ремонт и покраска", "en")).containsExactly("ремонт", "и", "покраска");
+    }
+
+    @Test
+    void dropsStopWordsWrittenWithDiacritics() {
+        assertThat(SearchTokenizer.tokenize("sekä kahvi että tee", "fi")).containsExactly("kahvi", "tee");
+    }
+
+    @Test
+    void russianKeepsShortIButFoldsYo() {
+        assertThat(SearchTokenizer.normalize("Ёлка мой", "ru")).isEqualTo("елка мой");
+    }
+
+    @Test
+    void latinLanguagesStripDiacritics() {
+        assertThat(SearchTokenizer.tokenize("Caffè Hyvä", "it")).containsExactly("caffe", "hyva");
+    }
+
+    @Test
+    void unknownLanguageHasNoStopWords() {
+        assertThat(SearchTokenizer.tokenize("the end", "")).containsExactly("the", "end");
+    }
+
+    @Test
+    void blankOrNullTextGivesNoTokens() {
+        assertThat(SearchTokenizer.tokenize(null, "en")).isEmpty();
+        assertThat(SearchTokenizer.tokenize("   ", "en")).isEmpty();
+    }
+
+    @Test
+    void distinctTokensKeepsFirstOccurrenceOrder() {
+        assertThat(SearchTokenizer.distinctTokens("b a b c a", "en")).containsExactly("b", "c");
+    }
+}